@@ -0,0 +1,61 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+
+import java.time.LocalDateTime;
+
+final class BenchmarkBooks {
+    static final int BEST_BUY_PRICE = 10_000;
+    static final int BEST_SELL_PRICE = 10_010;
+    static final int ORDER_QUANTITY = 100;
+    static final int PEAK_SIZE = 10;
+    static final LocalDateTime ENTRY_TIME = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    private BenchmarkBooks() {
+    }
+
+    static Security security() {
+        Security security = Security.builder().isin("BENCH").build();
+        new SecurityRepository().addSecurity(security);
+        return security;
+    }
+
+    static Broker broker(long brokerId) {
+        return Broker.builder().brokerId(brokerId).name("broker" + brokerId).credit(Long.MAX_VALUE / 4).build();
+    }
+
+    static Shareholder shareholder(Security security) {
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).name("shareholder1").build();
+        shareholder.incPosition(security, 1_000_000_000);
+        return shareholder;
+    }
+
+    static int price(Side side, int level) {
+        return side == Side.BUY ? BEST_BUY_PRICE - level : BEST_SELL_PRICE + level;
+    }
+
+    static boolean isIceberg(String mix, long orderId) {
+        return switch (mix) {
+            case "plain" -> false;
+            case "iceberg" -> true;
+            case "mixed" -> orderId % 2 == 0;
+            default -> throw new IllegalArgumentException(mix);
+        };
+    }
+
+    static Order order(long orderId, Security security, Side side, int price, Broker broker, Shareholder shareholder, String mix) {
+        if (isIceberg(mix, orderId))
+            return new IcebergOrder(orderId, security, side, Integer.MAX_VALUE / 2, price, broker, shareholder, ENTRY_TIME, PEAK_SIZE);
+        return new Order(orderId, security, side, ORDER_QUANTITY, price, broker, shareholder, ENTRY_TIME);
+    }
+
+    static long fill(Security security, Side side, int levels, int ordersPerLevel, String mix,
+                     Broker broker, Shareholder shareholder, long firstOrderId) {
+        long orderId = firstOrderId;
+        for (int level = 0; level < levels; level++)
+            for (int i = 0; i < ordersPerLevel; i++)
+                security.getOrderBook().enqueue(order(orderId++, security, side, price(side, level), broker, shareholder, mix));
+        return orderId;
+    }
+}
@@ -0,0 +1,43 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IcebergReplenishmentBenchmark {
+    @Param({"1", "10"})
+    int ordersAtBestPrice;
+    @Param({"1", "4", "16"})
+    int peaksPerRequest;
+
+    private final Matcher matcher = new Matcher();
+    private Security security;
+    private Broker buyer;
+    private Shareholder shareholder;
+    private long nextOrderId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        security = BenchmarkBooks.security();
+        buyer = BenchmarkBooks.broker(2);
+        shareholder = BenchmarkBooks.shareholder(security);
+        // the resting icebergs are never exhausted, so every request is filled at the best price
+        nextOrderId = BenchmarkBooks.fill(security, Side.SELL, 1, ordersAtBestPrice, "iceberg",
+                BenchmarkBooks.broker(1), shareholder, 1);
+    }
+
+    @Benchmark
+    public MatchResult executeAcrossPeaks() {
+        Order buy = new Order(nextOrderId++, security, Side.BUY, peaksPerRequest * BenchmarkBooks.PEAK_SIZE,
+                BenchmarkBooks.BEST_SELL_PRICE, buyer, shareholder, BenchmarkBooks.ENTRY_TIME);
+        return matcher.execute(buy);
+    }
+}
@@ -0,0 +1,67 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatcherBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    int levels;
+    @Param({"1", "10"})
+    int ordersPerLevel;
+    @Param({"plain", "iceberg", "mixed"})
+    String mix;
+
+    private final Matcher matcher = new Matcher();
+    private Security security;
+    private OrderBook orderBook;
+    private Broker seller;
+    private Broker buyer;
+    private Shareholder shareholder;
+    private long nextOrderId;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        security = BenchmarkBooks.security();
+        orderBook = security.getOrderBook();
+        seller = BenchmarkBooks.broker(1);
+        buyer = BenchmarkBooks.broker(2);
+        shareholder = BenchmarkBooks.shareholder(security);
+        nextOrderId = BenchmarkBooks.fill(security, Side.SELL, levels, ordersPerLevel, mix, seller, shareholder, 1);
+        nextOrderId = BenchmarkBooks.fill(security, Side.BUY, levels, ordersPerLevel, mix, seller, shareholder, nextOrderId);
+    }
+
+    private Order incomingBuy(int quantity, int price) {
+        return new Order(nextOrderId++, security, Side.BUY, quantity, price, buyer, shareholder, BenchmarkBooks.ENTRY_TIME);
+    }
+
+    @Benchmark
+    public MatchResult matchWithoutCrossing() {
+        return matcher.match(incomingBuy(BenchmarkBooks.ORDER_QUANTITY, BenchmarkBooks.BEST_SELL_PRICE - 1));
+    }
+
+    @Benchmark
+    public MatchResult executeAgainstBestOrder() {
+        Order best = orderBook.getSide(Side.SELL).first();
+        MatchResult result = matcher.execute(incomingBuy(best.getQuantity(), best.getPrice()));
+        if (!(best instanceof IcebergOrder))
+            orderBook.enqueue(BenchmarkBooks.order(nextOrderId++, security, Side.SELL, best.getPrice(), seller, shareholder, "plain"));
+        return result;
+    }
+
+    @Benchmark
+    public boolean executeRestingAndDelete() {
+        Order order = incomingBuy(BenchmarkBooks.ORDER_QUANTITY, BenchmarkBooks.BEST_SELL_PRICE - 1);
+        matcher.execute(order);
+        buyer.releaseCredit(order.getValue());
+        return orderBook.removeByOrderId(Side.BUY, order.getOrderId());
+    }
+}
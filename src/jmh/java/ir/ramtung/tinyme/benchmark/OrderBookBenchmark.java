@@ -0,0 +1,66 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBookBenchmark {
+    @Param({"1", "10", "100", "1000"})
+    int levels;
+    @Param({"1", "10"})
+    int ordersPerLevel;
+    @Param({"plain", "iceberg", "mixed"})
+    String mix;
+
+    private Security security;
+    private OrderBook orderBook;
+    private Broker broker;
+    private Shareholder shareholder;
+    private long ordersInBook;
+    private long nextOrderId;
+    private long cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        security = BenchmarkBooks.security();
+        orderBook = security.getOrderBook();
+        broker = BenchmarkBooks.broker(1);
+        shareholder = BenchmarkBooks.shareholder(security);
+        nextOrderId = BenchmarkBooks.fill(security, Side.SELL, levels, ordersPerLevel, mix, broker, shareholder, 1);
+        ordersInBook = nextOrderId - 1;
+    }
+
+    private long nextRestingOrderId() {
+        cursor = cursor == ordersInBook ? 1 : cursor + 1;
+        return cursor;
+    }
+
+    @Benchmark
+    public Order findByOrderId() {
+        return orderBook.findByOrderId(Side.SELL, nextRestingOrderId());
+    }
+
+    @Benchmark
+    public boolean enqueueAndRemove() {
+        int level = (int) (nextRestingOrderId() % levels);
+        long orderId = nextOrderId++;
+        orderBook.enqueue(BenchmarkBooks.order(orderId, security, Side.SELL, BenchmarkBooks.price(Side.SELL, level), broker, shareholder, mix));
+        return orderBook.removeByOrderId(Side.SELL, orderId);
+    }
+
+    @Benchmark
+    public boolean removeAndRequeue() {
+        long orderId = nextRestingOrderId();
+        Order order = orderBook.findByOrderId(Side.SELL, orderId);
+        boolean removed = orderBook.removeByOrderId(Side.SELL, orderId);
+        orderBook.enqueue(order);
+        return removed;
+    }
+}
@@ -0,0 +1,68 @@
+package ir.ramtung.tinyme.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+class LatencyRecorder {
+    private static final int SLOTS = 1 << 20;
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final AtomicLongArray requestIds = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray intendedTimes = new AtomicLongArray(SLOTS);
+    private final AtomicLongArray sendTimes = new AtomicLongArray(SLOTS);
+    private final Histogram responseTime = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private final Histogram serviceTime = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private final AtomicLong completed = new AtomicLong();
+    private final Semaphore window;
+    private volatile long recordAfterNanos;
+
+    LatencyRecorder(int window) {
+        this.window = new Semaphore(window);
+    }
+
+    void recordAfter(long nanoTime) {
+        recordAfterNanos = nanoTime;
+    }
+
+    void acquire() throws InterruptedException {
+        window.acquire();
+    }
+
+    void sent(long requestId, long intendedTime, long sendTime) {
+        int slot = (int) (requestId & (SLOTS - 1));
+        intendedTimes.set(slot, intendedTime);
+        sendTimes.set(slot, sendTime);
+        requestIds.set(slot, requestId);
+    }
+
+    void responded(long requestId, long receiveTime) {
+        int slot = (int) (requestId & (SLOTS - 1));
+        if (!requestIds.compareAndSet(slot, requestId, 0))
+            return;
+        long intendedTime = intendedTimes.get(slot);
+        if (intendedTime >= recordAfterNanos) {
+            synchronized (this) {
+                responseTime.recordValue(Math.min(receiveTime - intendedTime, HIGHEST_TRACKABLE_NANOS));
+                serviceTime.recordValue(Math.min(receiveTime - sendTimes.get(slot), HIGHEST_TRACKABLE_NANOS));
+            }
+        }
+        completed.incrementAndGet();
+        window.release();
+    }
+
+    long completed() {
+        return completed.get();
+    }
+
+    synchronized Histogram responseTime() {
+        return responseTime.copy();
+    }
+
+    synchronized Histogram serviceTime() {
+        return serviceTime.copy();
+    }
+}
@@ -0,0 +1,79 @@
+package ir.ramtung.tinyme.loadtest;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+class LatencyReport {
+    private static final double[] PERCENTILES = {50, 75, 90, 95, 99, 99.9, 99.99, 100};
+    private static final double NANOS_PER_MICRO = 1000.0;
+
+    private final LoadTestOptions options;
+    private final long sent;
+    private final long completed;
+    private final double elapsedSeconds;
+    private final Histogram responseTime;
+    private final Histogram serviceTime;
+
+    LatencyReport(LoadTestOptions options, long sent, long completed, double elapsedSeconds, Histogram responseTime, Histogram serviceTime) {
+        this.options = options;
+        this.sent = sent;
+        this.completed = completed;
+        this.elapsedSeconds = elapsedSeconds;
+        this.responseTime = responseTime;
+        this.serviceTime = serviceTime;
+    }
+
+    private static double micros(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_PER_MICRO;
+    }
+
+    void print(PrintStream out) {
+        out.printf(Locale.ROOT, "%s loop: sent %d, completed %d, %.0f requests/s over %.1f s%n",
+                options.openLoop() ? "open" : "closed", sent, completed, completed / elapsedSeconds, elapsedSeconds);
+        out.printf(Locale.ROOT, "%10s %18s %18s%n", "percentile", "response (us)", "service (us)");
+        for (double percentile : PERCENTILES)
+            out.printf(Locale.ROOT, "%10s %18.1f %18.1f%n", percentile, micros(responseTime, percentile), micros(serviceTime, percentile));
+    }
+
+    void write() throws IOException {
+        Path base = Path.of(options.report());
+        if (base.getParent() != null)
+            Files.createDirectories(base.getParent());
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Path.of(base + ".csv")))) {
+            writer.println("percentile,response_us,service_us");
+            for (double percentile : PERCENTILES)
+                writer.printf(Locale.ROOT, "%s,%.1f,%.1f%n", percentile, micros(responseTime, percentile), micros(serviceTime, percentile));
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Path.of(base + ".json")))) {
+            writer.println("{");
+            writer.printf(Locale.ROOT, "  \"mode\": \"%s\",%n", options.openLoop() ? "open" : "closed");
+            writer.printf(Locale.ROOT, "  \"targetRate\": %d,%n", options.openLoop() ? options.rate() : 0);
+            writer.printf(Locale.ROOT, "  \"concurrency\": %d,%n", options.concurrency());
+            writer.printf(Locale.ROOT, "  \"sent\": %d,%n", sent);
+            writer.printf(Locale.ROOT, "  \"completed\": %d,%n", completed);
+            writer.printf(Locale.ROOT, "  \"throughput\": %.1f,%n", completed / elapsedSeconds);
+            writer.printf(Locale.ROOT, "  \"responseTimeUs\": %s,%n", json(responseTime));
+            writer.printf(Locale.ROOT, "  \"serviceTimeUs\": %s%n", json(serviceTime));
+            writer.println("}");
+        }
+        try (PrintStream out = new PrintStream(Files.newOutputStream(Path.of(base + ".hgrm")))) {
+            responseTime.outputPercentileDistribution(out, NANOS_PER_MICRO);
+        }
+    }
+
+    private static String json(Histogram histogram) {
+        StringJoiner joiner = new StringJoiner(", ", "{", "}");
+        joiner.add(String.format(Locale.ROOT, "\"count\": %d", histogram.getTotalCount()));
+        joiner.add(String.format(Locale.ROOT, "\"mean\": %.1f", histogram.getMean() / NANOS_PER_MICRO));
+        for (double percentile : PERCENTILES)
+            joiner.add(String.format(Locale.ROOT, "\"p%s\": %.1f", percentile, micros(histogram, percentile)));
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,168 @@
+package ir.ramtung.tinyme.loadtest;
+
+import ir.ramtung.tinyme.TinyMeApplication;
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Drives a TinyME instance running against an embedded in-VM Artemis broker and reports request-to-event latency.
+ * Options are read as {@code --loadtest.*} arguments; any other argument (e.g. {@code --tinyme.engine.mode=sharded})
+ * configures the engine under test.
+ */
+public class LoadGenerator {
+    private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final LoadTestOptions options;
+    private final ConnectionFactory connectionFactory;
+    private final MessageConverter messageConverter;
+    private final String requestQueue;
+    private final String responseQueue;
+    private final LatencyRecorder recorder;
+    private final OrderFlow orderFlow;
+
+    LoadGenerator(ConfigurableApplicationContext context, LoadTestOptions options) {
+        this.options = options;
+        this.connectionFactory = context.getBean(ConnectionFactory.class);
+        this.messageConverter = context.getBean(MessageConverter.class);
+        this.requestQueue = context.getEnvironment().getRequiredProperty("requestQueue");
+        this.responseQueue = context.getEnvironment().getRequiredProperty("responseQueue");
+        this.recorder = new LatencyRecorder(options.concurrency());
+        this.orderFlow = new OrderFlow(options);
+    }
+
+    public static void main(String[] args) throws Exception {
+        // the test profile keeps DataLoader from importing and rewriting the CSV files; the generator seeds its own data
+        String[] defaults = {"--spring.artemis.mode=embedded",
+                "--spring.artemis.embedded.persistent=false",
+                "--spring.artemis.embedded.queues=${requestQueue},${responseQueue}",
+                "--logging.level.ir.ramtung.tinyme=WARN",
+                "--logging.level.org.apache.activemq=WARN"};
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(TinyMeApplication.class)
+                .profiles("test")
+                .run(Stream.concat(Arrays.stream(defaults), Arrays.stream(args)).toArray(String[]::new));
+        try {
+            LoadTestOptions options = LoadTestOptions.from(context.getEnvironment());
+            seed(context, options);
+            LatencyReport report = new LoadGenerator(context, options).run();
+            report.print(System.out);
+            report.write();
+        } finally {
+            context.close();
+        }
+    }
+
+    private static void seed(ConfigurableApplicationContext context, LoadTestOptions options) {
+        SecurityRepository securityRepository = context.getBean(SecurityRepository.class);
+        BrokerRepository brokerRepository = context.getBean(BrokerRepository.class);
+        ShareholderRepository shareholderRepository = context.getBean(ShareholderRepository.class);
+        for (int i = 0; i < options.securities(); i++)
+            securityRepository.addSecurity(Security.builder().isin(OrderFlow.isin(i)).tickSize(1).lotSize(1).build());
+        for (int i = 1; i <= options.brokers(); i++)
+            brokerRepository.addBroker(Broker.builder().brokerId(i).name("broker" + i).credit(Long.MAX_VALUE / 4).build());
+        for (int i = 1; i <= options.shareholders(); i++) {
+            Shareholder shareholder = Shareholder.builder().shareholderId(i).name("shareholder" + i).build();
+            for (int j = 0; j < options.securities(); j++)
+                shareholder.incPosition(securityRepository.findSecurityByIsin(OrderFlow.isin(j)), 1_000_000_000);
+            shareholderRepository.addShareholder(shareholder);
+        }
+    }
+
+    LatencyReport run() throws Exception {
+        Connection connection = connectionFactory.createConnection();
+        try {
+            Session receiveSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageConsumer consumer = receiveSession.createConsumer(receiveSession.createQueue(responseQueue));
+            consumer.setMessageListener(message -> {
+                long receiveTime = System.nanoTime();
+                try {
+                    recorder.responded(requestIdOf(messageConverter.fromMessage(message)), receiveTime);
+                } catch (JMSException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            connection.start();
+
+            Session sendSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            MessageProducer producer = sendSession.createProducer(sendSession.createQueue(requestQueue));
+            long start = System.nanoTime();
+            recorder.recordAfter(start + TimeUnit.SECONDS.toNanos(options.warmupSeconds()));
+            long sent = options.openLoop() ? sendOpenLoop(sendSession, producer, start) : sendClosedLoop(sendSession, producer, start);
+
+            long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.drainSeconds());
+            while (recorder.completed() < sent && System.nanoTime() < drainDeadline)
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+            consumer.close();
+            return new LatencyReport(options, sent, recorder.completed(), elapsedSeconds, recorder.responseTime(), recorder.serviceTime());
+        } finally {
+            connection.close();
+        }
+    }
+
+    private long sendOpenLoop(Session session, MessageProducer producer, long start) throws JMSException {
+        long interval = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long total = (long) options.rate() * options.durationSeconds();
+        for (long i = 0; i < total; i++) {
+            long intendedTime = start + i * interval;
+            long remaining;
+            while ((remaining = intendedTime - System.nanoTime()) > 0) {
+                if (remaining > SPIN_THRESHOLD_NANOS)
+                    LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+                else
+                    Thread.onSpinWait();
+            }
+            send(session, producer, i + 1, intendedTime);
+        }
+        return total;
+    }
+
+    private long sendClosedLoop(Session session, MessageProducer producer, long start) throws Exception {
+        long end = start + TimeUnit.SECONDS.toNanos(options.durationSeconds());
+        long sent = 0;
+        while (System.nanoTime() < end) {
+            recorder.acquire();
+            send(session, producer, ++sent, System.nanoTime());
+        }
+        return sent;
+    }
+
+    private void send(Session session, MessageProducer producer, long requestId, long intendedTime) throws JMSException {
+        Message message = messageConverter.toMessage(orderFlow.next(requestId), session);
+        recorder.sent(requestId, intendedTime, System.nanoTime());
+        producer.send(message);
+    }
+
+    private static long requestIdOf(Object event) {
+        if (event instanceof OrderAcceptedEvent accepted)
+            return accepted.getRequestId();
+        if (event instanceof OrderExecutedEvent executed)
+            return executed.getRequestId();
+        if (event instanceof OrderRejectedEvent rejected)
+            return rejected.getRequestId();
+        if (event instanceof OrderDeletedEvent deleted)
+            return deleted.getRequestId();
+        if (event instanceof OrderUpdatedEvent updated)
+            return updated.getRequestId();
+        return 0;
+    }
+}
@@ -0,0 +1,28 @@
+package ir.ramtung.tinyme.loadtest;
+
+import org.springframework.core.env.Environment;
+
+record LoadTestOptions(boolean openLoop, int rate, int concurrency, int durationSeconds, int warmupSeconds,
+                       int drainSeconds, int securities, int brokers, int shareholders,
+                       double deleteRatio, double crossRatio, double icebergRatio, long seed, String report) {
+    static LoadTestOptions from(Environment environment) {
+        String mode = environment.getProperty("loadtest.mode", "open");
+        if (!mode.equals("open") && !mode.equals("closed"))
+            throw new IllegalArgumentException("loadtest.mode must be open or closed, not " + mode);
+        return new LoadTestOptions(
+                mode.equals("open"),
+                environment.getProperty("loadtest.rate", Integer.class, 10_000),
+                environment.getProperty("loadtest.concurrency", Integer.class, 64),
+                environment.getProperty("loadtest.duration-seconds", Integer.class, 30),
+                environment.getProperty("loadtest.warmup-seconds", Integer.class, 5),
+                environment.getProperty("loadtest.drain-seconds", Integer.class, 10),
+                environment.getProperty("loadtest.securities", Integer.class, 10),
+                environment.getProperty("loadtest.brokers", Integer.class, 10),
+                environment.getProperty("loadtest.shareholders", Integer.class, 100),
+                environment.getProperty("loadtest.delete-ratio", Double.class, 0.2),
+                environment.getProperty("loadtest.cross-ratio", Double.class, 0.1),
+                environment.getProperty("loadtest.iceberg-ratio", Double.class, 0.05),
+                environment.getProperty("loadtest.seed", Long.class, 1L),
+                environment.getProperty("loadtest.report", "target/loadtest/report"));
+    }
+}
@@ -0,0 +1,48 @@
+package ir.ramtung.tinyme.loadtest;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+
+import java.time.LocalDateTime;
+import java.util.SplittableRandom;
+
+class OrderFlow {
+    static final int MID_PRICE = 10_000;
+    private static final int RECENT_ORDERS = 4096;
+
+    private final LoadTestOptions options;
+    private final SplittableRandom random;
+    private final long[] recentOrderIds = new long[RECENT_ORDERS];
+    private final int[] recentSecurities = new int[RECENT_ORDERS];
+    private final Side[] recentSides = new Side[RECENT_ORDERS];
+    private int recentCount;
+
+    OrderFlow(LoadTestOptions options) {
+        this.options = options;
+        this.random = new SplittableRandom(options.seed());
+    }
+
+    static String isin(int security) {
+        return String.format("LT%04d", security);
+    }
+
+    Object next(long requestId) {
+        if (recentCount > 0 && random.nextDouble() < options.deleteRatio()) {
+            int slot = random.nextInt(Math.min(recentCount, RECENT_ORDERS));
+            return new DeleteOrderRq(requestId, isin(recentSecurities[slot]), recentSides[slot], recentOrderIds[slot]);
+        }
+        int security = random.nextInt(options.securities());
+        Side side = random.nextBoolean() ? Side.BUY : Side.SELL;
+        int distance = random.nextDouble() < options.crossRatio() ? -random.nextInt(1, 10) : random.nextInt(1, 50);
+        int price = side == Side.BUY ? MID_PRICE - distance : MID_PRICE + distance;
+        int quantity = random.nextInt(1, 100) * 10;
+        int peakSize = random.nextDouble() < options.icebergRatio() ? quantity / 5 : 0;
+        int slot = recentCount++ % RECENT_ORDERS;
+        recentOrderIds[slot] = requestId;
+        recentSecurities[slot] = security;
+        recentSides[slot] = side;
+        return EnterOrderRq.createNewOrderRq(requestId, isin(security), requestId, LocalDateTime.now(), side, quantity, price,
+                random.nextInt(options.brokers()) + 1, random.nextInt(options.shareholders()) + 1, peakSize);
+    }
+}
@@ -0,0 +1,171 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import ir.ramtung.tinyme.util.LongObjectHashMap;
+import lombok.Getter;
+
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BookSide {
+    private static final class ShareholderQuantity {
+        int quantity;
+    }
+
+    @Getter
+    private final Side side;
+    private final TreeMap<Integer, PriceLevel> levels;
+    private final LongObjectHashMap<PriceLevel.Node> nodeByOrderId = new LongObjectHashMap<>();
+    private final LongObjectHashMap<ShareholderQuantity> quantityByShareholder = new LongObjectHashMap<>();
+    private PriceLevel bestLevel;
+    private PriceLevel worstLevel;
+    @Getter
+    private int size;
+
+    public BookSide(Side side) {
+        this.side = side;
+        this.levels = new TreeMap<>(side == Side.BUY ? Comparator.<Integer>reverseOrder() : Comparator.<Integer>naturalOrder());
+    }
+
+    public void addLast(Order order) {
+        index(levelFor(order.getPrice()).addLast(order));
+    }
+
+    public void addFirst(Order order) {
+        index(levelFor(order.getPrice()).addFirst(order));
+    }
+
+    private void index(PriceLevel.Node node) {
+        nodeByOrderId.put(node.order.getOrderId(), node);
+        size++;
+        book(node, node.order.getTotalQuantity());
+    }
+
+    private void book(PriceLevel.Node node, int quantity) {
+        long shareholderId = node.order.getShareholder().getShareholderId();
+        ShareholderQuantity total = quantityByShareholder.get(shareholderId);
+        if (total == null) {
+            total = new ShareholderQuantity();
+            quantityByShareholder.put(shareholderId, total);
+        }
+        total.quantity += quantity - node.bookedQuantity;
+        node.bookedQuantity = quantity;
+        if (total.quantity == 0)
+            quantityByShareholder.remove(shareholderId);
+    }
+
+    public void syncQuantity(Order order) {
+        PriceLevel.Node node = nodeByOrderId.get(order.getOrderId());
+        if (node != null && node.order == order)
+            book(node, order.getTotalQuantity());
+    }
+
+    public int totalQuantityByShareholder(long shareholderId) {
+        ShareholderQuantity total = quantityByShareholder.get(shareholderId);
+        return total == null ? 0 : total.quantity;
+    }
+
+    private PriceLevel levelFor(int price) {
+        if (bestLevel != null && bestLevel.getPrice() == price)
+            return bestLevel;
+        if (worstLevel != null && worstLevel.getPrice() == price)
+            return worstLevel;
+        PriceLevel level = levels.get(price);
+        if (level == null)
+            level = addLevel(price);
+        return level;
+    }
+
+    private PriceLevel addLevel(int price) {
+        PriceLevel level = new PriceLevel(price);
+        levels.put(level.key, level);
+        Map.Entry<Integer, PriceLevel> better = levels.lowerEntry(level.key);
+        Map.Entry<Integer, PriceLevel> worse = levels.higherEntry(level.key);
+        level.prevLevel = better == null ? null : better.getValue();
+        level.nextLevel = worse == null ? null : worse.getValue();
+        if (level.prevLevel == null)
+            bestLevel = level;
+        else
+            level.prevLevel.nextLevel = level;
+        if (level.nextLevel == null)
+            worstLevel = level;
+        else
+            level.nextLevel.prevLevel = level;
+        return level;
+    }
+
+    public PriceLevel bestLevel() {
+        return bestLevel;
+    }
+
+    public Order first() {
+        return bestLevel == null ? null : bestLevel.first();
+    }
+
+    public void removeFirst() {
+        PriceLevel.Node node = bestLevel.firstNode();
+        if (nodeByOrderId.get(node.order.getOrderId()) == node)
+            nodeByOrderId.remove(node.order.getOrderId());
+        unlink(node);
+    }
+
+    public Order findByOrderId(long orderId) {
+        PriceLevel.Node node = nodeByOrderId.get(orderId);
+        return node == null ? null : node.order;
+    }
+
+    public boolean removeByOrderId(long orderId) {
+        PriceLevel.Node node = nodeByOrderId.remove(orderId);
+        if (node == null)
+            return false;
+        unlink(node);
+        return true;
+    }
+
+    private void unlink(PriceLevel.Node node) {
+        PriceLevel level = node.level;
+        level.unlink(node);
+        size--;
+        book(node, 0);
+        if (level.isEmpty())
+            dropLevel(level);
+    }
+
+    private void dropLevel(PriceLevel level) {
+        levels.remove(level.key);
+        if (level.prevLevel == null)
+            bestLevel = level.nextLevel;
+        else
+            level.prevLevel.nextLevel = level.nextLevel;
+        if (level.nextLevel == null)
+            worstLevel = level.prevLevel;
+        else
+            level.nextLevel.prevLevel = level.prevLevel;
+        level.prevLevel = level.nextLevel = null;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int levelCount() {
+        return levels.size();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Iterable<PriceLevel> levels() {
+        return levels.values();
+    }
+
+    public LinkedList<Order> toList() {
+        LinkedList<Order> orders = new LinkedList<>();
+        for (PriceLevel level : levels.values())
+            for (Order order : level)
+                orders.add(order);
+        return orders;
+    }
+}
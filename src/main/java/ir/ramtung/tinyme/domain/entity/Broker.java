@@ -5,29 +5,86 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Credit is kept as a small ledger and these operations are the only way to change it. Buy
+// orders reserve credit out of the available balance, trades commit the reserved part they
+// consume and pay the seller, and deleting or repricing an order releases what it still holds.
+// Every reservation, including the one an update swaps for the order's old one, goes through a
+// compare-and-set on the available balance, so it never goes negative. Releases and payments
+// only ever add to it, and the reserved and traded counters are striped adders that are never
+// checked on the hot path.
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
-@Builder
 public class Broker {
     @Getter
     @EqualsAndHashCode.Include
-    private long brokerId;
-    @Getter
-    private String name;
+    private final long brokerId;
     @Getter
-    private long credit;
+    private final String name;
+    @ToString.Exclude
+    private final AtomicLong credit;
+    @ToString.Exclude
+    private final LongAdder reservedCredit = new LongAdder();
+    @ToString.Exclude
+    private final LongAdder tradedCredit = new LongAdder();
+
+    @Builder
+    public Broker(long brokerId, String name, long credit) {
+        this.brokerId = brokerId;
+        this.name = name;
+        this.credit = new AtomicLong(credit);
+    }
+
+    @ToString.Include(name = "credit")
+    public long getCredit() {
+        return credit.get();
+    }
+
+    public long getReservedCredit() {
+        return reservedCredit.sum();
+    }
+
+    public long getTradedCredit() {
+        return tradedCredit.sum();
+    }
+
+    public boolean reserveCredit(long requiredCredit, long amount) {
+        return replaceReservedCredit(0, requiredCredit, amount);
+    }
+
+    public boolean replaceReservedCredit(long heldCredit, long requiredCredit, long amount) {
+        assert heldCredit >= 0 && amount >= 0 && requiredCredit >= amount;
+        long current;
+        do {
+            current = credit.get();
+            if (current + heldCredit < requiredCredit)
+                return false;
+        } while (!credit.compareAndSet(current, current + heldCredit - amount));
+        reservedCredit.add(amount - heldCredit);
+        return true;
+    }
 
-    public void increaseCreditBy(long amount) {
+    public void commitCredit(long amount) {
         assert amount >= 0;
-        credit += amount;
+        reservedCredit.add(-amount);
+        tradedCredit.add(amount);
     }
 
-    public void decreaseCreditBy(long amount) {
+    public void releaseCredit(long amount) {
         assert amount >= 0;
-        credit -= amount;
+        reservedCredit.add(-amount);
+        credit.addAndGet(amount);
     }
 
-    public boolean hasEnoughCredit(long amount) {
-        return credit >= amount;
+    public void receiveCredit(long amount) {
+        assert amount >= 0;
+        credit.addAndGet(amount);
+    }
+
+    public void restoreReservedCredit(long amount) {
+        assert amount >= 0;
+        reservedCredit.add(amount);
     }
 }
@@ -0,0 +1,50 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Per-thread scratch space for a single match: pooled trades and a result object that are
+ * reused by the next match on the same thread. A result handed out from here is only valid
+ * until then; callers that keep trades around must copy them.
+ */
+public final class MatchBuffer {
+    private Trade[] trades = new Trade[16];
+    private int size;
+    private final TradeList view = new TradeList();
+    private final MatchResult result = new MatchResult(MatchingOutcome.EXECUTED, null, view);
+
+    public void clear() {
+        size = 0;
+    }
+
+    public Trade addTrade(Security security, int price, int quantity, Order order1, Order order2) {
+        if (size == trades.length)
+            trades = Arrays.copyOf(trades, size * 2);
+        Trade trade = trades[size];
+        if (trade == null)
+            trade = trades[size] = new Trade();
+        size++;
+        return trade.set(security, price, quantity, order1, order2);
+    }
+
+    public MatchResult executed(Order remainder) {
+        result.reset(MatchingOutcome.EXECUTED, remainder);
+        return result;
+    }
+
+    private final class TradeList extends AbstractList<Trade> implements RandomAccess {
+        @Override
+        public Trade get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException(index);
+            return trades[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
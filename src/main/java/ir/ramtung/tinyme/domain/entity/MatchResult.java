@@ -1,30 +1,38 @@
 package ir.ramtung.tinyme.domain.entity;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 
 public final class MatchResult {
-    private final MatchingOutcome outcome;
-    private final Order remainder;
-    private final LinkedList<Trade> trades;
+    private static final MatchResult NOT_ENOUGH_CREDIT = new MatchResult(MatchingOutcome.NOT_ENOUGH_CREDIT, null, List.of());
+    private static final MatchResult NOT_ENOUGH_POSITIONS = new MatchResult(MatchingOutcome.NOT_ENOUGH_POSITIONS, null, List.of());
+
+    private MatchingOutcome outcome;
+    private Order remainder;
+    private final List<Trade> trades;
 
     public static MatchResult executed(Order remainder, List<Trade> trades) {
-        return new MatchResult(MatchingOutcome.EXECUTED, remainder, new LinkedList<>(trades));
+        return new MatchResult(MatchingOutcome.EXECUTED, remainder, new ArrayList<>(trades));
     }
 
     public static MatchResult notEnoughCredit() {
-        return new MatchResult(MatchingOutcome.NOT_ENOUGH_CREDIT, null, new LinkedList<>());
+        return NOT_ENOUGH_CREDIT;
     }
     public static MatchResult notEnoughPositions() {
-        return new MatchResult(MatchingOutcome.NOT_ENOUGH_POSITIONS, null, new LinkedList<>());
+        return NOT_ENOUGH_POSITIONS;
     }
-    private MatchResult(MatchingOutcome outcome, Order remainder, LinkedList<Trade> trades) {
+    MatchResult(MatchingOutcome outcome, Order remainder, List<Trade> trades) {
         this.outcome = outcome;
         this.remainder = remainder;
         this.trades = trades;
     }
 
+    void reset(MatchingOutcome outcome, Order remainder) {
+        this.outcome = outcome;
+        this.remainder = remainder;
+    }
+
     public MatchingOutcome outcome() {
         return outcome;
     }
@@ -32,7 +40,7 @@ public final class MatchResult {
         return remainder;
     }
 
-    public LinkedList<Trade> trades() {
+    public List<Trade> trades() {
         return trades;
     }
 
@@ -1,90 +1,114 @@
 package ir.ramtung.tinyme.domain.entity;
 
-import lombok.Getter;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.metrics.EnqueueEvent;
+import ir.ramtung.tinyme.metrics.FlightEvents;
 
 import java.util.LinkedList;
-import java.util.List;
-import java.util.ListIterator;
 
-@Getter
 public class OrderBook {
-    private final LinkedList<Order> buyQueue;
-    private final LinkedList<Order> sellQueue;
+    private final BookSide buySide;
+    private final BookSide sellSide;
+    private long modificationCount;
 
     public OrderBook() {
-        buyQueue = new LinkedList<>();
-        sellQueue = new LinkedList<>();
+        buySide = new BookSide(Side.BUY);
+        sellSide = new BookSide(Side.SELL);
     }
 
     public void enqueue(Order order) {
-        List<Order> queue = getQueue(order.getSide());
-        ListIterator<Order> it = queue.listIterator();
-        while (it.hasNext()) {
-            if (order.queuesBefore(it.next())) {
-                it.previous();
-                break;
-            }
+        if (!FlightEvents.enqueueEnabled()) {
+            order.queue();
+            getSide(order.getSide()).addLast(order);
+            modificationCount++;
+            return;
         }
+        EnqueueEvent event = new EnqueueEvent();
+        event.begin();
+        BookSide side = getSide(order.getSide());
+        int levelsBefore = side.levelCount();
         order.queue();
-        it.add(order);
+        side.addLast(order);
+        modificationCount++;
+        event.end();
+        if (event.shouldCommit()) {
+            event.isin = order.getSecurity().getIsin();
+            event.side = order.getSide().name();
+            event.price = order.getPrice();
+            event.levelCount = side.levelCount();
+            event.newLevel = side.levelCount() > levelsBefore;
+            event.sideSize = side.size();
+            event.commit();
+        }
+    }
+
+    public void restore(Order order) {
+        enqueue(order);
+        if (order.getSide() == Side.BUY)
+            order.getBroker().restoreReservedCredit(order.getValue());
+    }
+
+    public BookSide getSide(Side side) {
+        return side == Side.BUY ? buySide : sellSide;
     }
 
-    private LinkedList<Order> getQueue(Side side) {
-        return side == Side.BUY ? buyQueue : sellQueue;
+    public LinkedList<Order> getBuyQueue() {
+        return buySide.toList();
+    }
+
+    public LinkedList<Order> getSellQueue() {
+        return sellSide.toList();
     }
 
     public Order findByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        for (Order order : queue) {
-            if (order.getOrderId() == orderId)
-                return order;
-        }
-        return null;
+        return getSide(side).findByOrderId(orderId);
     }
 
     public boolean removeByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        var it = queue.listIterator();
-        while (it.hasNext()) {
-            if (it.next().getOrderId() == orderId) {
-                it.remove();
-                return true;
-            }
-        }
-        return false;
+        modificationCount++;
+        return getSide(side).removeByOrderId(orderId);
     }
 
     public Order matchWithFirst(Order newOrder) {
-        var queue = getQueue(newOrder.getSide().opposite());
-        if (newOrder.matches(queue.getFirst()))
-            return queue.getFirst();
+        Order first = getSide(newOrder.getSide().opposite()).first();
+        if (newOrder.matches(first))
+            return first;
         else
             return null;
     }
 
     public void putBack(Order order) {
-        LinkedList<Order> queue = getQueue(order.getSide());
         order.queue();
-        queue.addFirst(order);
-    }
-
-    public void restoreSellOrder(Order sellOrder) {
-        removeByOrderId(Side.SELL, sellOrder.getOrderId());
-        putBack(sellOrder);
+        getSide(order.getSide()).addFirst(order);
+        modificationCount++;
     }
 
     public boolean hasOrderOfType(Side side) {
-        return !getQueue(side).isEmpty();
+        return !getSide(side).isEmpty();
     }
 
     public void removeFirst(Side side) {
-        getQueue(side).removeFirst();
+        getSide(side).removeFirst();
+        modificationCount++;
+    }
+
+    public void decreaseQuantity(Order queuedOrder, int amount) {
+        queuedOrder.decreaseQuantity(amount);
+        getSide(queuedOrder.getSide()).syncQuantity(queuedOrder);
+        modificationCount++;
+    }
+
+    public void updateQueuedOrder(Order queuedOrder, EnterOrderRq updateOrderRq) {
+        queuedOrder.updateFromRequest(updateOrderRq);
+        getSide(queuedOrder.getSide()).syncQuantity(queuedOrder);
+        modificationCount++;
+    }
+
+    public long getModificationCount() {
+        return modificationCount;
     }
 
     public int totalSellQuantityByShareholder(Shareholder shareholder) {
-        return sellQueue.stream()
-                .filter(order -> order.getShareholder().equals(shareholder))
-                .mapToInt(Order::getTotalQuantity)
-                .sum();
+        return sellSide.totalQuantityByShareholder(shareholder.getShareholderId());
     }
 }
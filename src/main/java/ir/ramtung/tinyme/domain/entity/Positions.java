@@ -0,0 +1,61 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+// The positions of one shareholder as a flat array of quantities indexed by the dense security
+// index, so settling a trade leg is a single array access. The array only grows as far as the
+// highest index the shareholder holds. Shards owning different securities may settle trades of
+// the same shareholder at once, and either may have to grow the array, so every access holds
+// the monitor; it is uncontended almost all the time.
+final class Positions {
+    private static final int[] NO_QUANTITIES = new int[0];
+
+    private int[] quantities = NO_QUANTITIES;
+    private int size;
+
+    synchronized int get(Security security) {
+        int index = security.getIndex();
+        return index >= 0 && index < quantities.length ? quantities[index] : 0;
+    }
+
+    synchronized void add(Security security, int amount) {
+        int index = slotOf(security);
+        set(index, quantities[index] + amount);
+    }
+
+    synchronized void subtract(Security security, int amount) {
+        int current = get(security);
+        if (current < amount)
+            throw new IllegalArgumentException("Amount to be decreased is greater than shareholder's current position");
+        set(slotOf(security), current - amount);
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void forEach(IntFunction<Security> securityByIndex, ObjIntConsumer<Security> action) {
+        for (int index = 0; index < quantities.length; index++)
+            if (quantities[index] != 0)
+                action.accept(securityByIndex.apply(index), quantities[index]);
+    }
+
+    private int slotOf(Security security) {
+        int index = security.getIndex();
+        if (index < 0)
+            throw new IllegalStateException("Security " + security.getIsin() + " has to be added to a repository before positions are taken on it");
+        if (index >= quantities.length)
+            quantities = Arrays.copyOf(quantities, Math.max(index + 1, quantities.length + (quantities.length >> 1)));
+        return index;
+    }
+
+    private void set(int index, int quantity) {
+        if (quantities[index] == 0 && quantity != 0)
+            size++;
+        else if (quantities[index] != 0 && quantity == 0)
+            size--;
+        quantities[index] = quantity;
+    }
+}
@@ -0,0 +1,124 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class PriceLevel implements Iterable<Order> {
+    public static final class Node {
+        final Order order;
+        final PriceLevel level;
+        Node prev;
+        Node next;
+        int bookedQuantity;
+
+        Node(Order order, PriceLevel level) {
+            this.order = order;
+            this.level = level;
+        }
+
+        public Order order() {
+            return order;
+        }
+
+        public Node next() {
+            return next;
+        }
+    }
+
+    @Getter
+    private final int price;
+    final Integer key;
+    PriceLevel nextLevel;
+    PriceLevel prevLevel;
+    private Node head;
+    private Node tail;
+    private int size;
+
+    public PriceLevel(int price) {
+        this.price = price;
+        this.key = price;
+    }
+
+    Node addLast(Order order) {
+        Node node = new Node(order, this);
+        if (tail == null) {
+            head = tail = node;
+        } else {
+            node.prev = tail;
+            tail.next = node;
+            tail = node;
+        }
+        size++;
+        return node;
+    }
+
+    Node addFirst(Order order) {
+        Node node = new Node(order, this);
+        if (head == null) {
+            head = tail = node;
+        } else {
+            node.next = head;
+            head.prev = node;
+            head = node;
+        }
+        size++;
+        return node;
+    }
+
+    public Node firstNode() {
+        return head;
+    }
+
+    public PriceLevel nextLevel() {
+        return nextLevel;
+    }
+
+    public Order first() {
+        return head == null ? null : head.order;
+    }
+
+    void unlink(Node node) {
+        assert node.level == this;
+        if (node.prev == null)
+            head = node.next;
+        else
+            node.prev.next = node.next;
+        if (node.next == null)
+            tail = node.prev;
+        else
+            node.next.prev = node.prev;
+        node.prev = node.next = null;
+        size--;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            private Node next = head;
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Order next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                Order order = next.order;
+                next = next.next;
+                return order;
+            }
+        };
+    }
+}
@@ -5,14 +5,21 @@ import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
 import ir.ramtung.tinyme.domain.service.Matcher;
 import ir.ramtung.tinyme.messaging.Message;
+import ir.ramtung.tinyme.metrics.FlightEvents;
+import ir.ramtung.tinyme.metrics.UpdateRollbackEvent;
 import lombok.Builder;
 import lombok.Getter;
 
 import java.util.List;
 
+// The repository hands out dense indexes 0..n-1 as securities are added and the index stays with
+// the security for good, so adding it again after a clear or to another repository keeps it.
+// Requests resolve the ISIN once at ingress; positions and snapshots go by the index.
 @Getter
 @Builder
 public class Security {
+    public static final int UNREGISTERED = -1;
+
     private String isin;
     @Builder.Default
     private int tickSize = 1;
@@ -20,6 +27,14 @@ public class Security {
     private int lotSize = 1;
     @Builder.Default
     private OrderBook orderBook = new OrderBook();
+    @Builder.Default
+    private int index = UNREGISTERED;
+
+    public void register(int index) {
+        if (this.index != UNREGISTERED)
+            throw new IllegalStateException("Security " + isin + " already has index " + this.index);
+        this.index = index;
+    }
 
     public MatchResult newOrder(EnterOrderRq enterOrderRq, Broker broker, Shareholder shareholder, Matcher matcher) {
         if (enterOrderRq.getSide() == Side.SELL &&
@@ -43,7 +58,7 @@ public class Security {
         if (order == null)
             throw new InvalidRequestException(Message.ORDER_ID_NOT_FOUND);
         if (order.getSide() == Side.BUY)
-            order.getBroker().increaseCreditBy(order.getValue());
+            order.getBroker().releaseCredit(order.getValue());
         orderBook.removeByOrderId(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
     }
 
@@ -65,24 +80,32 @@ public class Security {
                 || updateOrderRq.getPrice() != order.getPrice()
                 || ((order instanceof IcebergOrder icebergOrder) && (icebergOrder.getPeakSize() < updateOrderRq.getPeakSize()));
 
-        if (updateOrderRq.getSide() == Side.BUY) {
-            order.getBroker().increaseCreditBy(order.getValue());
-        }
+        long heldCredit = updateOrderRq.getSide() == Side.BUY ? order.getValue() : 0;
         Order originalOrder = order.snapshot();
-        order.updateFromRequest(updateOrderRq);
+        orderBook.updateQueuedOrder(order, updateOrderRq);
         if (!losesPriority) {
+            // keeping priority means neither quantity nor price went up, so this only ever gives credit back
             if (updateOrderRq.getSide() == Side.BUY) {
-                order.getBroker().decreaseCreditBy(order.getValue());
+                order.getBroker().releaseCredit(heldCredit - order.getValue());
             }
             return MatchResult.executed(null, List.of());
         }
 
         orderBook.removeByOrderId(updateOrderRq.getSide(), updateOrderRq.getOrderId());
-        MatchResult matchResult = matcher.execute(order);
+        MatchResult matchResult = matcher.execute(order, heldCredit);
         if (matchResult.outcome() != MatchingOutcome.EXECUTED) {
+            UpdateRollbackEvent event = FlightEvents.updateRollbackEnabled() ? new UpdateRollbackEvent() : null;
+            if (event != null)
+                event.begin();
             orderBook.enqueue(originalOrder);
-            if (updateOrderRq.getSide() == Side.BUY) {
-                originalOrder.getBroker().decreaseCreditBy(originalOrder.getValue());
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.isin = isin;
+                    event.orderId = originalOrder.getOrderId();
+                    event.outcome = matchResult.outcome().name();
+                    event.commit();
+                }
             }
         }
         return matchResult;
@@ -5,8 +5,8 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
 
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
@@ -17,23 +17,32 @@ public class Shareholder {
     private long shareholderId;
     @Getter
     private String name;
-    @Getter
-    @Builder.Default
-    private Map<Security, Integer> positions = new HashMap<>();
+    @ToString.Exclude
+    private final Positions positions = new Positions();
 
     public void incPosition(Security security, int amount) {
         assert amount >= 0;
-        positions.put(security, positions.getOrDefault(security, 0) + amount);
+        positions.add(security, amount);
     }
 
     public void decPosition(Security security, int amount) {
         assert amount >= 0;
-        int currentPositions = positions.getOrDefault(security, 0);
-        if (currentPositions < amount)
-            throw new IllegalArgumentException("Amount to be decreased is greater than shareholder's current position");
-        positions.put(security, currentPositions - amount);
+        positions.subtract(security, amount);
     }
+
     public boolean hasEnoughPositionsOn(Security security, int position) {
-        return positions.getOrDefault(security, 0) >= position;
+        return positions.get(security) >= position;
+    }
+
+    public int getPosition(Security security) {
+        return positions.get(security);
+    }
+
+    public int positionCount() {
+        return positions.size();
+    }
+
+    public void forEachPosition(IntFunction<Security> securityByIndex, ObjIntConsumer<Security> action) {
+        positions.forEach(securityByIndex, action);
     }
 }
@@ -1,34 +1,46 @@
 package ir.ramtung.tinyme.domain.entity;
 
-import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.ToString;
 
-@Builder
 @Getter
 @EqualsAndHashCode
 @ToString
 public class Trade {
-    Security security;
+    private Security security;
     private int price;
     private int quantity;
+    private long buyOrderId;
+    private long sellOrderId;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Order buy;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Order sell;
 
     public Trade(Security security, int price, int quantity, Order order1, Order order2) {
+        set(security, price, quantity, order1, order2);
+    }
+
+    Trade() {
+    }
+
+    Trade set(Security security, int price, int quantity, Order order1, Order order2) {
         this.security = security;
         this.price = price;
         this.quantity = quantity;
-        Order snapshot1 = order1.snapshot();
-        Order snapshot2 = order2.snapshot();
         if (order1.getSide() == Side.BUY) {
-            this.buy = snapshot1;
-            this.sell = snapshot2;
+            this.buy = order1;
+            this.sell = order2;
         } else {
-            this.buy = snapshot2;
-            this.sell = snapshot1;
+            this.buy = order2;
+            this.sell = order1;
         }
+        this.buyOrderId = buy.getOrderId();
+        this.sellOrderId = sell.getOrderId();
+        return this;
     }
 
     public long getTradedValue() {
@@ -36,15 +48,20 @@ public class Trade {
     }
 
     public void increaseSellersCredit() {
-        sell.getBroker().increaseCreditBy(getTradedValue());
+        sell.getBroker().receiveCredit(getTradedValue());
     }
 
-    public void decreaseBuyersCredit() {
-        buy.getBroker().decreaseCreditBy(getTradedValue());
+    public void settleCredit() {
+        buy.getBroker().commitCredit(getTradedValue());
+        increaseSellersCredit();
     }
 
-    public boolean buyerHasEnoughCredit() {
-        return buy.getBroker().hasEnoughCredit(getTradedValue());
+    public boolean isBetweenSameBroker() {
+        return buy.getBroker() == sell.getBroker();
     }
 
+    public void settlePositions() {
+        buy.getShareholder().incPosition(security, quantity);
+        sell.getShareholder().decPosition(security, quantity);
+    }
 }
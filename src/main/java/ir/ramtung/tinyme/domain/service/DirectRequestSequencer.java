@@ -0,0 +1,38 @@
+package ir.ramtung.tinyme.domain.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+@ConditionalOnProperty(name = "tinyme.engine.mode", havingValue = "direct", matchIfMissing = true)
+public class DirectRequestSequencer implements RequestSequencer, MatchingBarrier {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final ReentrantLock lock = new ReentrantLock();
+
+    @Override
+    public void submit(String securityIsin, Runnable request, Runnable onFailure) {
+        lock.lock();
+        try {
+            request.run();
+        } catch (RuntimeException ex) {
+            log.log(Level.SEVERE, "Request on " + securityIsin + " failed", ex);
+            onFailure.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void pauseAndRun(Runnable task) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            task.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,33 +1,53 @@
 package ir.ramtung.tinyme.domain.service;
 
 import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.metrics.CreditRejectionEvent;
+import ir.ramtung.tinyme.metrics.FlightEvents;
+import ir.ramtung.tinyme.metrics.MatchingEvent;
+import ir.ramtung.tinyme.metrics.RequestMetrics;
+import ir.ramtung.tinyme.metrics.RequestTiming;
+import ir.ramtung.tinyme.metrics.Stage;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.LinkedList;
-import java.util.ListIterator;
+import java.util.List;
 
 @Service
 public class Matcher {
+    private final RequestMetrics requestMetrics;
+    private final ThreadLocal<MatchBuffer> buffers = ThreadLocal.withInitial(MatchBuffer::new);
+
+    public Matcher() {
+        this(RequestMetrics.disabled());
+    }
+
+    @Autowired
+    public Matcher(RequestMetrics requestMetrics) {
+        this.requestMetrics = requestMetrics;
+    }
+
     public MatchResult match(Order newOrder) {
+        if (newOrder.getSide() == Side.BUY && !reserveBuyersCredit(newOrder, false, 0))
+            return MatchResult.notEnoughCredit();
+        return matchReserved(newOrder);
+    }
+
+    private MatchResult matchReserved(Order newOrder) {
+        MatchingEvent event = FlightEvents.matchingEnabled() ? new MatchingEvent() : null;
+        if (event != null)
+            event.begin();
         OrderBook orderBook = newOrder.getSecurity().getOrderBook();
-        LinkedList<Trade> trades = new LinkedList<>();
+        MatchBuffer buffer = buffers.get();
+        buffer.clear();
 
         while (orderBook.hasOrderOfType(newOrder.getSide().opposite()) && newOrder.getQuantity() > 0) {
             Order matchingOrder = orderBook.matchWithFirst(newOrder);
             if (matchingOrder == null)
                 break;
 
-            Trade trade = new Trade(newOrder.getSecurity(), matchingOrder.getPrice(), Math.min(newOrder.getQuantity(), matchingOrder.getQuantity()), newOrder, matchingOrder);
-            if (newOrder.getSide() == Side.BUY) {
-                if (trade.buyerHasEnoughCredit())
-                    trade.decreaseBuyersCredit();
-                else {
-                    rollbackTrades(newOrder, trades);
-                    return MatchResult.notEnoughCredit();
-                }
-            }
-            trade.increaseSellersCredit();
-            trades.add(trade);
+            Trade trade = buffer.addTrade(newOrder.getSecurity(), matchingOrder.getPrice(), Math.min(newOrder.getQuantity(), matchingOrder.getQuantity()), newOrder, matchingOrder);
+            if (newOrder.getSide() == Side.SELL || !trade.isBetweenSameBroker())
+                trade.settleCredit();
 
             if (newOrder.getQuantity() >= matchingOrder.getQuantity()) {
                 newOrder.decreaseQuantity(matchingOrder.getQuantity());
@@ -39,45 +59,112 @@ public class Matcher {
                         orderBook.enqueue(icebergOrder);
                 }
             } else {
-                matchingOrder.decreaseQuantity(newOrder.getQuantity());
+                orderBook.decreaseQuantity(matchingOrder, newOrder.getQuantity());
                 newOrder.makeQuantityZero();
             }
         }
-        return MatchResult.executed(newOrder, trades);
+        MatchResult result = buffer.executed(newOrder);
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit())
+                commitMatchingEvent(event, newOrder, result.trades());
+        }
+        return result;
     }
 
-    private void rollbackTrades(Order newOrder, LinkedList<Trade> trades) {
-        assert newOrder.getSide() == Side.BUY;
-        newOrder.getBroker().increaseCreditBy(trades.stream().mapToLong(Trade::getTradedValue).sum());
-        trades.forEach(trade -> trade.getSell().getBroker().decreaseCreditBy(trade.getTradedValue()));
-
-        ListIterator<Trade> it = trades.listIterator(trades.size());
-        while (it.hasPrevious()) {
-            newOrder.getSecurity().getOrderBook().restoreSellOrder(it.previous().getSell());
+    private static void commitMatchingEvent(MatchingEvent event, Order newOrder, List<Trade> trades) {
+        event.isin = newOrder.getSecurity().getIsin();
+        event.side = newOrder.getSide().name();
+        event.orderId = newOrder.getOrderId();
+        event.tradeCount = trades.size();
+        int lastPrice = 0;
+        for (Trade trade : trades) {
+            event.tradedQuantity += trade.getQuantity();
+            if (event.levelsCrossed == 0 || trade.getPrice() != lastPrice)
+                event.levelsCrossed++;
+            lastPrice = trade.getPrice();
         }
+        event.commit();
     }
 
-    public MatchResult execute(Order order) {
-        MatchResult result = match(order);
-        if (result.outcome() == MatchingOutcome.NOT_ENOUGH_CREDIT)
-            return result;
-
-        if (result.remainder().getQuantity() > 0) {
-            if (order.getSide() == Side.BUY) {
-                if (!order.getBroker().hasEnoughCredit((long)order.getPrice() * order.getQuantity())) {
-                    rollbackTrades(order, result.trades());
-                    return MatchResult.notEnoughCredit();
+    private boolean reserveBuyersCredit(Order buyOrder, boolean includeRemainder, long heldCredit) {
+        Broker buyer = buyOrder.getBroker();
+        long required = 0;
+        long spent = 0;
+        int remaining = buyOrder.getQuantity();
+        for (PriceLevel level = buyOrder.getSecurity().getOrderBook().getSide(Side.SELL).bestLevel(); level != null; level = level.nextLevel()) {
+            if (remaining == 0 || level.getPrice() > buyOrder.getPrice())
+                break;
+            boolean filledInRound = true;
+            for (int round = 0; remaining > 0 && filledInRound; round++) {
+                filledInRound = false;
+                for (PriceLevel.Node node = level.firstNode(); node != null; node = node.next()) {
+                    Order sellOrder = node.order();
+                    int displayed = displayedInRound(sellOrder, round);
+                    if (displayed == 0)
+                        continue;
+                    filledInRound = true;
+                    int quantity = Math.min(remaining, displayed);
+                    long value = (long) sellOrder.getPrice() * quantity;
+                    required = Math.max(required, spent + value);
+                    if (sellOrder.getBroker() != buyer)
+                        spent += value;
+                    remaining -= quantity;
+                    if (remaining == 0)
+                        break;
                 }
-                order.getBroker().decreaseCreditBy((long)order.getPrice() * order.getQuantity());
             }
-            order.getSecurity().getOrderBook().enqueue(result.remainder());
         }
-        if (!result.trades().isEmpty()) {
-            for (Trade trade : result.trades()) {
-                trade.getBuy().getShareholder().incPosition(trade.getSecurity(), trade.getQuantity());
-                trade.getSell().getShareholder().decPosition(trade.getSecurity(), trade.getQuantity());
-            }
+        if (includeRemainder && remaining > 0) {
+            spent += (long) buyOrder.getPrice() * remaining;
+            required = Math.max(required, spent);
         }
+        if (buyer.replaceReservedCredit(heldCredit, required, spent))
+            return true;
+        if (!FlightEvents.creditRejectionEnabled())
+            return false;
+        CreditRejectionEvent event = new CreditRejectionEvent();
+        if (event.shouldCommit()) {
+            event.isin = buyOrder.getSecurity().getIsin();
+            event.orderId = buyOrder.getOrderId();
+            event.brokerId = buyer.getBrokerId();
+            event.requiredCredit = required;
+            event.availableCredit = buyer.getCredit();
+            event.commit();
+        }
+        return false;
+    }
+
+    private static int displayedInRound(Order queuedOrder, int round) {
+        if (round == 0)
+            return queuedOrder.getQuantity();
+        if (!(queuedOrder instanceof IcebergOrder icebergOrder))
+            return 0;
+        long total = icebergOrder.getTotalQuantity();
+        long displayed = icebergOrder.getQuantity();
+        long peakSize = icebergOrder.getPeakSize();
+        return (int) (Math.min(total, displayed + round * peakSize) - Math.min(total, displayed + (round - 1) * peakSize));
+    }
+
+    public MatchResult execute(Order order) {
+        return execute(order, 0);
+    }
+
+    public MatchResult execute(Order order, long heldCredit) {
+        RequestTiming timing = requestMetrics.current();
+        timing.lap(Stage.ORDER);
+        if (order.getSide() == Side.BUY && !reserveBuyersCredit(order, true, heldCredit)) {
+            timing.lap(Stage.MATCH);
+            return MatchResult.notEnoughCredit();
+        }
+        MatchResult result = matchReserved(order);
+
+        if (result.remainder().getQuantity() > 0)
+            order.getSecurity().getOrderBook().enqueue(result.remainder());
+        List<Trade> trades = result.trades();
+        for (int i = 0; i < trades.size(); i++)
+            trades.get(i).settlePositions();
+        timing.lap(Stage.MATCH);
         return result;
     }
 
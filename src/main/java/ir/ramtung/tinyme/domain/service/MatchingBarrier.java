@@ -0,0 +1,5 @@
+package ir.ramtung.tinyme.domain.service;
+
+public interface MatchingBarrier {
+    void pauseAndRun(Runnable task) throws InterruptedException;
+}
@@ -1,6 +1,7 @@
 package ir.ramtung.tinyme.domain.service;
 
 import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.journal.RequestJournal;
 import ir.ramtung.tinyme.messaging.Message;
 import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
 import ir.ramtung.tinyme.messaging.EventPublisher;
@@ -9,14 +10,20 @@ import ir.ramtung.tinyme.messaging.event.*;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
 import ir.ramtung.tinyme.messaging.request.OrderEntryType;
+import ir.ramtung.tinyme.metrics.Outcome;
+import ir.ramtung.tinyme.metrics.RequestKind;
+import ir.ramtung.tinyme.metrics.RequestMetrics;
+import ir.ramtung.tinyme.metrics.RequestTiming;
+import ir.ramtung.tinyme.metrics.Stage;
 import ir.ramtung.tinyme.repository.BrokerRepository;
 import ir.ramtung.tinyme.repository.SecurityRepository;
 import ir.ramtung.tinyme.repository.ShareholderRepository;
 import org.springframework.stereotype.Service;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 
 @Service
 public class OrderHandler {
@@ -25,94 +32,222 @@ public class OrderHandler {
     ShareholderRepository shareholderRepository;
     EventPublisher eventPublisher;
     Matcher matcher;
+    RequestJournal requestJournal;
+    RequestMetrics requestMetrics;
+    private final Consumer<Event> publishEvent;
 
-    public OrderHandler(SecurityRepository securityRepository, BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, EventPublisher eventPublisher, Matcher matcher) {
+    private static final List<String> NOT_ENOUGH_CREDIT = List.of(Message.BUYER_HAS_NOT_ENOUGH_CREDIT);
+    private static final List<String> NOT_ENOUGH_POSITIONS = List.of(Message.SELLER_HAS_NOT_ENOUGH_POSITIONS);
+    private static final List<String> PROCESSING_FAILED = List.of(Message.REQUEST_PROCESSING_FAILED);
+
+    private record Rule<R>(Violation violation, BiPredicate<R, RequestContext> violatedBy) {
+    }
+
+    private static final List<Rule<EnterOrderRq>> ENTER_ORDER_RULES = List.of(
+            new Rule<>(Violation.INVALID_ORDER_ID, (rq, context) -> rq.getOrderId() <= 0),
+            new Rule<>(Violation.ORDER_QUANTITY_NOT_POSITIVE, (rq, context) -> rq.getQuantity() <= 0),
+            new Rule<>(Violation.ORDER_PRICE_NOT_POSITIVE, (rq, context) -> rq.getPrice() <= 0),
+            new Rule<>(Violation.UNKNOWN_SECURITY_ISIN, (rq, context) -> context.getSecurity() == null),
+            new Rule<>(Violation.QUANTITY_NOT_MULTIPLE_OF_LOT_SIZE,
+                    (rq, context) -> context.getSecurity() != null && rq.getQuantity() % context.getSecurity().getLotSize() != 0),
+            new Rule<>(Violation.PRICE_NOT_MULTIPLE_OF_TICK_SIZE,
+                    (rq, context) -> context.getSecurity() != null && rq.getPrice() % context.getSecurity().getTickSize() != 0),
+            new Rule<>(Violation.UNKNOWN_BROKER_ID, (rq, context) -> context.getBroker() == null),
+            new Rule<>(Violation.UNKNOWN_SHAREHOLDER_ID, (rq, context) -> context.getShareholder() == null),
+            new Rule<>(Violation.INVALID_PEAK_SIZE, (rq, context) -> rq.getPeakSize() < 0 || rq.getPeakSize() >= rq.getQuantity())
+    );
+
+    private static final List<Rule<DeleteOrderRq>> DELETE_ORDER_RULES = List.of(
+            new Rule<>(Violation.INVALID_ORDER_ID, (rq, context) -> rq.getOrderId() <= 0),
+            new Rule<>(Violation.UNKNOWN_SECURITY_ISIN, (rq, context) -> context.getSecurity() == null)
+    );
+
+    public OrderHandler(SecurityRepository securityRepository, BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, EventPublisher eventPublisher, Matcher matcher, RequestJournal requestJournal, RequestMetrics requestMetrics) {
         this.securityRepository = securityRepository;
         this.brokerRepository = brokerRepository;
         this.shareholderRepository = shareholderRepository;
         this.eventPublisher = eventPublisher;
         this.matcher = matcher;
+        this.requestJournal = requestJournal;
+        this.requestMetrics = requestMetrics;
+        this.publishEvent = eventPublisher::publish;
     }
 
     public void handleEnterOrder(EnterOrderRq enterOrderRq) {
-        try {
-            validateEnterOrderRq(enterOrderRq);
+        handleEnterOrder(enterOrderRq, 0);
+    }
 
-            Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
-            Broker broker = brokerRepository.findBrokerById(enterOrderRq.getBrokerId());
-            Shareholder shareholder = shareholderRepository.findShareholderById(enterOrderRq.getShareholderId());
+    public void handleEnterOrder(EnterOrderRq enterOrderRq, long receivedNanos) {
+        RequestTiming timing = requestMetrics.start(enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER
+                ? RequestKind.NEW_ORDER : RequestKind.UPDATE_ORDER, receivedNanos);
+        RequestContext context = resolve(enterOrderRq);
+        timing.lap(Stage.LOOKUP);
+        check(ENTER_ORDER_RULES, enterOrderRq, context);
+        timing.lap(Stage.VALIDATION);
+        if (!context.isValid()) {
+            eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), context.reasons()));
+            timing.lap(Stage.PUBLISH);
+            timing.outcome(Outcome.REJECTED_INVALID);
+            timing.finish();
+            return;
+        }
+        processEnterOrder(enterOrderRq, context, publishEvent);
+        timing.finish();
+    }
+
+    public void processEnterOrder(EnterOrderRq enterOrderRq, RequestContext context, Consumer<Event> events) {
+        journal(enterOrderRq);
+        requestMetrics.current().lap(Stage.JOURNAL);
+        applyEnterOrder(enterOrderRq, context, events);
+    }
 
+    private void applyEnterOrder(EnterOrderRq enterOrderRq, RequestContext context, Consumer<Event> events) {
+        RequestTiming timing = requestMetrics.current();
+        try {
+            Security security = context.getSecurity();
             MatchResult matchResult;
             if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER)
-                matchResult = security.newOrder(enterOrderRq, broker, shareholder, matcher);
+                matchResult = security.newOrder(enterOrderRq, context.getBroker(), context.getShareholder(), matcher);
             else
                 matchResult = security.updateOrder(enterOrderRq, matcher);
+            timing.lap(Stage.ORDER);
 
             if (matchResult.outcome() == MatchingOutcome.NOT_ENOUGH_CREDIT) {
-                eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), List.of(Message.BUYER_HAS_NOT_ENOUGH_CREDIT)));
+                events.accept(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), NOT_ENOUGH_CREDIT));
+                timing.lap(Stage.PUBLISH);
+                timing.outcome(Outcome.REJECTED_CREDIT);
                 return;
             }
             if (matchResult.outcome() == MatchingOutcome.NOT_ENOUGH_POSITIONS) {
-                eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), List.of(Message.SELLER_HAS_NOT_ENOUGH_POSITIONS)));
+                events.accept(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), NOT_ENOUGH_POSITIONS));
+                timing.lap(Stage.PUBLISH);
+                timing.outcome(Outcome.REJECTED_POSITIONS);
                 return;
             }
             if (enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER)
-                eventPublisher.publish(new OrderAcceptedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId()));
+                events.accept(new OrderAcceptedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId()));
             else
-                eventPublisher.publish(new OrderUpdatedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId()));
+                events.accept(new OrderUpdatedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId()));
             if (!matchResult.trades().isEmpty()) {
-                eventPublisher.publish(new OrderExecutedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), matchResult.trades().stream().map(TradeDTO::new).collect(Collectors.toList())));
+                events.accept(new OrderExecutedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), tradeDTOs(matchResult.trades())));
+                timing.outcome(Outcome.EXECUTED);
+            } else {
+                timing.outcome(enterOrderRq.getRequestType() == OrderEntryType.NEW_ORDER ? Outcome.ACCEPTED : Outcome.UPDATED);
             }
+            timing.lap(Stage.PUBLISH);
         } catch (InvalidRequestException ex) {
-            eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), ex.getReasons()));
+            timing.lap(Stage.ORDER);
+            events.accept(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), ex.getReasons()));
+            timing.lap(Stage.PUBLISH);
+            timing.outcome(Outcome.REJECTED_INVALID);
         }
     }
 
     public void handleDeleteOrder(DeleteOrderRq deleteOrderRq) {
+        handleDeleteOrder(deleteOrderRq, 0);
+    }
+
+    public void handleDeleteOrder(DeleteOrderRq deleteOrderRq, long receivedNanos) {
+        RequestTiming timing = requestMetrics.start(RequestKind.DELETE_ORDER, receivedNanos);
+        RequestContext context = resolve(deleteOrderRq);
+        timing.lap(Stage.LOOKUP);
+        check(DELETE_ORDER_RULES, deleteOrderRq, context);
+        timing.lap(Stage.VALIDATION);
+        if (!context.isValid()) {
+            eventPublisher.publish(new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), context.reasons()));
+            timing.lap(Stage.PUBLISH);
+            timing.outcome(Outcome.REJECTED_INVALID);
+            timing.finish();
+            return;
+        }
+        processDeleteOrder(deleteOrderRq, context, publishEvent);
+        timing.finish();
+    }
+
+    public void processDeleteOrder(DeleteOrderRq deleteOrderRq, RequestContext context, Consumer<Event> events) {
+        journal(deleteOrderRq);
+        requestMetrics.current().lap(Stage.JOURNAL);
+        applyDeleteOrder(deleteOrderRq, context, events);
+    }
+
+    private void applyDeleteOrder(DeleteOrderRq deleteOrderRq, RequestContext context, Consumer<Event> events) {
+        RequestTiming timing = requestMetrics.current();
         try {
-            validateDeleteOrderRq(deleteOrderRq);
-            Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
-            security.deleteOrder(deleteOrderRq);
-            eventPublisher.publish(new OrderDeletedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId()));
+            context.getSecurity().deleteOrder(deleteOrderRq);
+            timing.lap(Stage.ORDER);
+            events.accept(new OrderDeletedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId()));
+            timing.lap(Stage.PUBLISH);
+            timing.outcome(Outcome.DELETED);
         } catch (InvalidRequestException ex) {
-            eventPublisher.publish(new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), ex.getReasons()));
+            timing.lap(Stage.ORDER);
+            events.accept(new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), ex.getReasons()));
+            timing.lap(Stage.PUBLISH);
+            timing.outcome(Outcome.REJECTED_INVALID);
         }
     }
 
-    private void validateEnterOrderRq(EnterOrderRq enterOrderRq) throws InvalidRequestException {
-        List<String> errors = new LinkedList<>();
-        if (enterOrderRq.getOrderId() <= 0)
-            errors.add(Message.INVALID_ORDER_ID);
-        if (enterOrderRq.getQuantity() <= 0)
-            errors.add(Message.ORDER_QUANTITY_NOT_POSITIVE);
-        if (enterOrderRq.getPrice() <= 0)
-            errors.add(Message.ORDER_PRICE_NOT_POSITIVE);
-        Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
-        if (security == null)
-            errors.add(Message.UNKNOWN_SECURITY_ISIN);
-        else {
-            if (enterOrderRq.getQuantity() % security.getLotSize() != 0)
-                errors.add(Message.QUANTITY_NOT_MULTIPLE_OF_LOT_SIZE);
-            if (enterOrderRq.getPrice() % security.getTickSize() != 0)
-                errors.add(Message.PRICE_NOT_MULTIPLE_OF_TICK_SIZE);
+    public void rejectFailedRequest(Object request) {
+        rejectFailedRequest(request, publishEvent);
+    }
+
+    public void rejectFailedRequest(Object request, Consumer<Event> events) {
+        if (request instanceof EnterOrderRq enterOrderRq)
+            events.accept(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), PROCESSING_FAILED));
+        else if (request instanceof DeleteOrderRq deleteOrderRq)
+            events.accept(new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), PROCESSING_FAILED));
+    }
+
+    public void replay(Object request) {
+        if (request instanceof EnterOrderRq enterOrderRq)
+            applyEnterOrder(enterOrderRq, resolve(enterOrderRq), event -> {});
+        else if (request instanceof DeleteOrderRq deleteOrderRq)
+            applyDeleteOrder(deleteOrderRq, resolve(deleteOrderRq), event -> {});
+    }
+
+    private void journal(Object request) {
+        requestJournal.awaitDurable(requestJournal.append(request));
+    }
+
+    private RequestContext resolve(EnterOrderRq enterOrderRq) {
+        return resolve(enterOrderRq, new RequestContext());
+    }
+
+    private RequestContext resolve(EnterOrderRq enterOrderRq, RequestContext context) {
+        context.reset(securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin()),
+                brokerRepository.findBrokerById(enterOrderRq.getBrokerId()),
+                shareholderRepository.findShareholderById(enterOrderRq.getShareholderId()));
+        return context;
+    }
+
+    private RequestContext resolve(DeleteOrderRq deleteOrderRq) {
+        return resolve(deleteOrderRq, new RequestContext());
+    }
+
+    private RequestContext resolve(DeleteOrderRq deleteOrderRq, RequestContext context) {
+        context.reset(securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin()), null, null);
+        return context;
+    }
+
+    public void validateEnterOrderRq(EnterOrderRq enterOrderRq, RequestContext context) {
+        check(ENTER_ORDER_RULES, enterOrderRq, resolve(enterOrderRq, context));
+    }
+
+    public void validateDeleteOrderRq(DeleteOrderRq deleteOrderRq, RequestContext context) {
+        check(DELETE_ORDER_RULES, deleteOrderRq, resolve(deleteOrderRq, context));
+    }
+
+    private static <R> void check(List<Rule<R>> rules, R request, RequestContext context) {
+        for (int i = 0; i < rules.size(); i++) {
+            Rule<R> rule = rules.get(i);
+            if (rule.violatedBy().test(request, context))
+                context.add(rule.violation());
         }
-        if (brokerRepository.findBrokerById(enterOrderRq.getBrokerId()) == null)
-            errors.add(Message.UNKNOWN_BROKER_ID);
-        if (shareholderRepository.findShareholderById(enterOrderRq.getShareholderId()) == null)
-            errors.add(Message.UNKNOWN_SHAREHOLDER_ID);
-        if (enterOrderRq.getPeakSize() < 0 || enterOrderRq.getPeakSize() >= enterOrderRq.getQuantity())
-            errors.add(Message.INVALID_PEAK_SIZE);
-        if (!errors.isEmpty())
-            throw new InvalidRequestException(errors);
-    }
-
-    private void validateDeleteOrderRq(DeleteOrderRq deleteOrderRq) throws InvalidRequestException {
-        List<String> errors = new LinkedList<>();
-        if (deleteOrderRq.getOrderId() <= 0)
-            errors.add(Message.INVALID_ORDER_ID);
-        if (securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin()) == null)
-            errors.add(Message.UNKNOWN_SECURITY_ISIN);
-        if (!errors.isEmpty())
-            throw new InvalidRequestException(errors);
+    }
+
+    private static List<TradeDTO> tradeDTOs(List<Trade> trades) {
+        List<TradeDTO> dtos = new ArrayList<>(trades.size());
+        for (int i = 0; i < trades.size(); i++)
+            dtos.add(new TradeDTO(trades.get(i)));
+        return dtos;
     }
 }
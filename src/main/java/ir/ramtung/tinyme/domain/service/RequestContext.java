@@ -0,0 +1,44 @@
+package ir.ramtung.tinyme.domain.service;
+
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * The entities a request refers to, looked up once during validation and handed on to
+ * matching and event creation, together with the set of violations validation found.
+ * Delete requests only resolve the security. A context can be reused for request after
+ * request; resolving a new request resets it.
+ */
+@Getter
+public final class RequestContext {
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+    private int violations;
+
+    public RequestContext() {
+    }
+
+    void reset(Security security, Broker broker, Shareholder shareholder) {
+        this.security = security;
+        this.broker = broker;
+        this.shareholder = shareholder;
+        this.violations = 0;
+    }
+
+    void add(Violation violation) {
+        violations |= violation.bit();
+    }
+
+    public boolean isValid() {
+        return violations == 0;
+    }
+
+    public List<String> reasons() {
+        return Violation.reasons(violations);
+    }
+}
@@ -0,0 +1,9 @@
+package ir.ramtung.tinyme.domain.service;
+
+public interface RequestSequencer {
+    void submit(String securityIsin, Runnable request, Runnable onFailure);
+
+    default void submit(String securityIsin, Runnable request) {
+        submit(securityIsin, request, () -> {});
+    }
+}
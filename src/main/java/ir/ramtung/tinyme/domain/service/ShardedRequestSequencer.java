@@ -0,0 +1,138 @@
+package ir.ramtung.tinyme.domain.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Every security is owned by exactly one single-threaded shard, so an order book is only ever
+// touched by its shard's thread. State shared between securities (broker credit and shareholder
+// positions) is updated atomically by the entities themselves. Each shard queues a bounded
+// number of requests; once it is full, submit blocks and the broker holds back the rest.
+@Component
+@ConditionalOnProperty(name = "tinyme.engine.mode", havingValue = "sharded")
+public class ShardedRequestSequencer implements RequestSequencer, MatchingBarrier, SmartLifecycle {
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final ExecutorService[] shards;
+    private volatile boolean running;
+
+    public ShardedRequestSequencer(int shardCount) {
+        this(shardCount, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    @Autowired
+    public ShardedRequestSequencer(@Value("${tinyme.engine.shards:0}") int shardCount,
+                                   @Value("${tinyme.engine.shard-queue-capacity:1024}") int queueCapacity) {
+        if (shardCount <= 0)
+            shardCount = Runtime.getRuntime().availableProcessors();
+        shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String threadName = "matching-shard-" + i;
+            shards[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, threadName);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    ShardedRequestSequencer::waitForRoom);
+        }
+        running = true;
+    }
+
+    // a full shard blocks the JMS listener that feeds it instead of queueing without bound
+    private static void waitForRoom(Runnable request, ThreadPoolExecutor shard) {
+        if (shard.isShutdown())
+            throw new RejectedExecutionException("Matching shard is shut down");
+        try {
+            shard.getQueue().put(request);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for a matching shard", ex);
+        }
+    }
+
+    public int shardOf(String securityIsin) {
+        return Math.floorMod(Objects.hashCode(securityIsin), shards.length);
+    }
+
+    public int shardCount() {
+        return shards.length;
+    }
+
+    @Override
+    public void submit(String securityIsin, Runnable request, Runnable onFailure) {
+        shards[shardOf(securityIsin)].execute(() -> {
+            try {
+                request.run();
+            } catch (RuntimeException ex) {
+                log.log(Level.SEVERE, "Request on " + securityIsin + " failed", ex);
+                onFailure.run();
+            }
+        });
+    }
+
+    @Override
+    public void pauseAndRun(Runnable task) throws InterruptedException {
+        CountDownLatch parked = new CountDownLatch(shards.length);
+        CountDownLatch released = new CountDownLatch(1);
+        try {
+            for (ExecutorService shard : shards) {
+                shard.execute(() -> {
+                    parked.countDown();
+                    try {
+                        released.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            parked.await();
+            task.run();
+        } finally {
+            released.countDown();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        for (ExecutorService shard : shards)
+            shard.shutdown();
+        try {
+            for (ExecutorService shard : shards)
+                if (!shard.awaitTermination(10, TimeUnit.SECONDS))
+                    log.warning("Matching shard did not drain in time");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // stops after the JMS listener containers, so no request arrives at a drained shard
+        return SmartLifecycle.DEFAULT_PHASE - 1;
+    }
+}
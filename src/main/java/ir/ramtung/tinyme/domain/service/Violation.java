@@ -0,0 +1,55 @@
+package ir.ramtung.tinyme.domain.service;
+
+import ir.ramtung.tinyme.messaging.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public enum Violation {
+    INVALID_ORDER_ID(Message.INVALID_ORDER_ID),
+    ORDER_QUANTITY_NOT_POSITIVE(Message.ORDER_QUANTITY_NOT_POSITIVE),
+    ORDER_PRICE_NOT_POSITIVE(Message.ORDER_PRICE_NOT_POSITIVE),
+    UNKNOWN_SECURITY_ISIN(Message.UNKNOWN_SECURITY_ISIN),
+    QUANTITY_NOT_MULTIPLE_OF_LOT_SIZE(Message.QUANTITY_NOT_MULTIPLE_OF_LOT_SIZE),
+    PRICE_NOT_MULTIPLE_OF_TICK_SIZE(Message.PRICE_NOT_MULTIPLE_OF_TICK_SIZE),
+    UNKNOWN_BROKER_ID(Message.UNKNOWN_BROKER_ID),
+    UNKNOWN_SHAREHOLDER_ID(Message.UNKNOWN_SHAREHOLDER_ID),
+    INVALID_PEAK_SIZE(Message.INVALID_PEAK_SIZE);
+
+    private static final List<List<String>> REASONS = allReasonLists();
+
+    private final String message;
+
+    Violation(String message) {
+        this.message = message;
+    }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public String message() {
+        return message;
+    }
+
+    /**
+     * The immutable reason list for a set of violations, in declaration order. Every
+     * combination is built once up front, so rejecting a request does not allocate it.
+     */
+    public static List<String> reasons(int violations) {
+        return REASONS.get(violations);
+    }
+
+    private static List<List<String>> allReasonLists() {
+        Violation[] violations = values();
+        List<List<String>> lists = new ArrayList<>(1 << violations.length);
+        for (int mask = 0; mask < 1 << violations.length; mask++) {
+            List<String> reasons = new ArrayList<>(Integer.bitCount(mask));
+            for (Violation violation : violations)
+                if ((mask & violation.bit()) != 0)
+                    reasons.add(violation.message);
+            lists.add(List.copyOf(reasons));
+        }
+        return lists;
+    }
+}
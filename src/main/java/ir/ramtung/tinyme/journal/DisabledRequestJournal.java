@@ -0,0 +1,37 @@
+package ir.ramtung.tinyme.journal;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+@Component
+@ConditionalOnProperty(name = "tinyme.journal.enabled", havingValue = "false", matchIfMissing = true)
+public class DisabledRequestJournal implements RequestJournal {
+    @Override
+    public long append(Object request) {
+        return 0;
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+    }
+
+    @Override
+    public long lastSequence() {
+        return 0;
+    }
+
+    @Override
+    public long checkpointSequence() {
+        return 0;
+    }
+
+    @Override
+    public void replay(long afterSequence, Consumer<Object> requestConsumer) {
+    }
+
+    @Override
+    public void checkpoint(long sequence) {
+    }
+}
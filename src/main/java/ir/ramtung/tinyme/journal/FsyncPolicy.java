@@ -0,0 +1,20 @@
+package ir.ramtung.tinyme.journal;
+
+// Only REQUEST makes awaitDurable wait for the fsync, so no event goes out for a request that is
+// not yet on disk. BATCH and PERIODIC return at once and events are published ahead of the group
+// commit: a crash can lose up to batch-size requests, or flush-interval-ms of them, whose outcome
+// was already announced. They trade that window for not stalling matching on every fsync.
+public enum FsyncPolicy {
+    REQUEST,
+    BATCH,
+    PERIODIC;
+
+    public static FsyncPolicy forName(String name) {
+        return switch (name) {
+            case "request" -> REQUEST;
+            case "batch" -> BATCH;
+            case "periodic" -> PERIODIC;
+            default -> throw new IllegalArgumentException("Unknown fsync policy: " + name);
+        };
+    }
+}
@@ -0,0 +1,329 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.messaging.codec.BinaryCodec;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Requests are appended to memory-mapped segment files as [length][crc32][sequence][BinaryCodec payload].
+// The header is written last, so a zero length marks the end of a segment and a torn append is never read back.
+// A single flusher thread forces the current segment on behalf of every append made since its last force,
+// so concurrent writers waiting for durability share one fsync (group commit).
+@Component
+@ConditionalOnProperty(name = "tinyme.journal.enabled", havingValue = "true")
+public class MappedRequestJournal implements RequestJournal {
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long batchSize;
+    private final long flushIntervalNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushNeeded = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+    private final Thread flusher;
+
+    private MappedByteBuffer segment;
+    private long segmentFirstSequence;
+    private volatile long checkpointSequence;
+    private long appendedSequence;
+    private long durableSequence;
+    private int waiters;
+    private boolean running = true;
+
+    public MappedRequestJournal(@Value("${tinyme.journal.dir:journal}") String directory,
+                                @Value("${tinyme.journal.segment-size:67108864}") int segmentSize,
+                                @Value("${tinyme.journal.fsync:batch}") String fsyncPolicy,
+                                @Value("${tinyme.journal.batch-size:64}") int batchSize,
+                                @Value("${tinyme.journal.flush-interval-ms:10}") long flushIntervalMillis) throws IOException {
+        this.directory = Path.of(directory);
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = FsyncPolicy.forName(fsyncPolicy);
+        this.batchSize = switch (this.fsyncPolicy) {
+            case REQUEST -> 1;
+            case BATCH -> batchSize;
+            case PERIODIC -> Long.MAX_VALUE;
+        };
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        Files.createDirectories(this.directory);
+        checkpointSequence = readCheckpoint();
+        appendedSequence = Math.max(checkpointSequence, scan(checkpointSequence, null));
+        durableSequence = appendedSequence;
+        openSegment(appendedSequence + 1);
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public long append(Object request) {
+        lock.lock();
+        try {
+            long sequence = appendedSequence + 1;
+            if (!tryWrite(sequence, request)) {
+                roll(sequence);
+                if (!tryWrite(sequence, request))
+                    throw new IllegalArgumentException("Request does not fit in a journal segment: " + request);
+            }
+            appendedSequence = sequence;
+            if (appendedSequence - durableSequence >= batchSize)
+                flushNeeded.signal();
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean tryWrite(long sequence, Object request) {
+        int start = segment.position();
+        if (segment.remaining() < HEADER_SIZE + Long.BYTES)
+            return false;
+        try {
+            segment.position(start + HEADER_SIZE);
+            segment.putLong(sequence);
+            BinaryCodec.encode(request, segment);
+        } catch (BufferOverflowException ex) {
+            segment.position(start);
+            return false;
+        } catch (RuntimeException ex) {
+            segment.position(start);
+            throw ex;
+        }
+        int length = segment.position() - start - HEADER_SIZE;
+        crc.reset();
+        crc.update(segment.slice(start + HEADER_SIZE, length));
+        segment.putInt(start + Integer.BYTES, (int) crc.getValue());
+        segment.putInt(start, length);
+        return true;
+    }
+
+    // See FsyncPolicy for the loss window BATCH and PERIODIC accept by not waiting here.
+    @Override
+    public void awaitDurable(long sequence) {
+        if (fsyncPolicy != FsyncPolicy.REQUEST)
+            return;
+        lock.lock();
+        try {
+            if (durableSequence >= sequence)
+                return;
+            waiters++;
+            flushNeeded.signal();
+            while (durableSequence < sequence)
+                flushed.awaitUninterruptibly();
+            waiters--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        try {
+            while (true) {
+                MappedByteBuffer target;
+                long sequence;
+                lock.lock();
+                try {
+                    long remaining = flushIntervalNanos;
+                    while (true) {
+                        long pending = appendedSequence - durableSequence;
+                        if (pending > 0 && (waiters > 0 || pending >= batchSize || remaining <= 0 || !running))
+                            break;
+                        if (pending == 0 && !running)
+                            return;
+                        if (remaining <= 0)
+                            remaining = flushIntervalNanos;
+                        remaining = flushNeeded.awaitNanos(remaining);
+                    }
+                    target = segment;
+                    sequence = appendedSequence;
+                } finally {
+                    lock.unlock();
+                }
+                target.force();
+                lock.lock();
+                try {
+                    durableSequence = Math.max(durableSequence, sequence);
+                    flushed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public long lastSequence() {
+        lock.lock();
+        try {
+            return appendedSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long checkpointSequence() {
+        return checkpointSequence;
+    }
+
+    @Override
+    public void replay(long afterSequence, Consumer<Object> requestConsumer) {
+        long[] replayed = new long[1];
+        scan(afterSequence, request -> {
+            requestConsumer.accept(request);
+            replayed[0]++;
+        });
+        log.info("Replayed " + replayed[0] + " journaled requests after sequence " + afterSequence);
+    }
+
+    // Segments are only read back by replay, so everything but the rolling of the
+    // current segment happens outside the append lock.
+    @Override
+    public synchronized void checkpoint(long sequence) {
+        if (sequence <= checkpointSequence)
+            return;
+        lock.lock();
+        try {
+            if (sequence >= appendedSequence && segmentFirstSequence <= appendedSequence)
+                roll(appendedSequence + 1);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writeCheckpoint(sequence);
+            checkpointSequence = sequence;
+            List<Path> segments = segments();
+            for (int i = 0; i + 1 < segments.size(); i++)
+                if (firstSequenceOf(segments.get(i + 1)) - 1 <= sequence)
+                    Files.delete(segments.get(i));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.lock();
+        try {
+            running = false;
+            flushNeeded.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void roll(long firstSequence) {
+        segment.force();
+        durableSequence = appendedSequence;
+        flushed.signalAll();
+        try {
+            openSegment(firstSequence);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void openSegment(long firstSequence) throws IOException {
+        Path path = segmentPath(firstSequence);
+        Files.deleteIfExists(path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        segmentFirstSequence = firstSequence;
+    }
+
+    private long scan(long afterSequence, Consumer<Object> requestConsumer) {
+        CRC32 checksum = new CRC32();
+        long lastSequence = 0;
+        try {
+            for (Path path : segments()) {
+                ByteBuffer buffer;
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+                while (buffer.remaining() >= HEADER_SIZE) {
+                    int length = buffer.getInt();
+                    int expectedChecksum = buffer.getInt();
+                    if (length < Long.BYTES || length > buffer.remaining())
+                        break;
+                    ByteBuffer body = buffer.slice(buffer.position(), length);
+                    checksum.reset();
+                    checksum.update(body.duplicate());
+                    if ((int) checksum.getValue() != expectedChecksum) {
+                        log.warning("Ignoring a torn record at the end of " + path);
+                        break;
+                    }
+                    long sequence = body.getLong();
+                    if (requestConsumer != null && sequence > afterSequence)
+                        requestConsumer.accept(BinaryCodec.decode(body));
+                    lastSequence = sequence;
+                    buffer.position(buffer.position() + length);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return lastSequence;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+    }
+
+    private Path segmentPath(long firstSequence) {
+        return directory.resolve(String.format("%020d%s", firstSequence, SEGMENT_SUFFIX));
+    }
+
+    private static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path path = directory.resolve(CHECKPOINT_FILE);
+        return Files.exists(path) ? Long.parseLong(Files.readString(path).trim()) : 0;
+    }
+
+    private void writeCheckpoint(long sequence) throws IOException {
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(Long.toString(sequence).getBytes()));
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
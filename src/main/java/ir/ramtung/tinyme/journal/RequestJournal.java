@@ -0,0 +1,17 @@
+package ir.ramtung.tinyme.journal;
+
+import java.util.function.Consumer;
+
+public interface RequestJournal {
+    long append(Object request);
+
+    void awaitDurable(long sequence);
+
+    long lastSequence();
+
+    long checkpointSequence();
+
+    void replay(long afterSequence, Consumer<Object> requestConsumer);
+
+    void checkpoint(long sequence);
+}
@@ -0,0 +1,153 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+class AsyncEventSender implements Runnable {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final ConnectionFactory connectionFactory;
+    private final MessageConverter messageConverter;
+    private final String responseQueue;
+    private final int maxBatchSize;
+    private final long maxLingerNanos;
+    private final BlockingQueue<Event> queue;
+    private final List<Event> batch;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+
+    AsyncEventSender(ConnectionFactory connectionFactory, MessageConverter messageConverter, String responseQueue,
+                     int queueCapacity, int maxBatchSize, long maxLingerMicros) {
+        this.connectionFactory = connectionFactory;
+        this.messageConverter = messageConverter;
+        this.responseQueue = responseQueue;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLingerNanos = TimeUnit.MICROSECONDS.toNanos(maxLingerMicros);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batch = new ArrayList<>(maxBatchSize);
+        this.thread = new Thread(this, "event-publisher");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void enqueue(Event event) {
+        try {
+            queue.put(event);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing " + event, ex);
+        }
+    }
+
+    void close() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running || !queue.isEmpty()) {
+                Event first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                batch.add(first);
+                fillBatch();
+                try {
+                    send(batch);
+                } catch (RuntimeException ex) {
+                    log.log(Level.SEVERE, "Dropped a batch of " + batch.size() + " events", ex);
+                    disconnect();
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            disconnect();
+        }
+    }
+
+    private void fillBatch() throws InterruptedException {
+        long deadline = System.nanoTime() + maxLingerNanos;
+        while (batch.size() < maxBatchSize) {
+            if (queue.drainTo(batch, maxBatchSize - batch.size()) > 0)
+                continue;
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0)
+                return;
+            Event next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null)
+                return;
+            batch.add(next);
+        }
+    }
+
+    private void send(List<Event> events) {
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            try {
+                connectIfNeeded();
+                for (Event event : events) {
+                    jakarta.jms.Message message;
+                    try {
+                        message = messageConverter.toMessage(event, session);
+                    } catch (RuntimeException ex) {
+                        log.log(Level.SEVERE, "Dropped " + event + " that could not be converted", ex);
+                        continue;
+                    }
+                    producer.send(message);
+                }
+                session.commit();
+                return;
+            } catch (JMSException ex) {
+                log.log(Level.WARNING, "Sending a batch of " + events.size() + " events failed (attempt " + attempt + ")", ex);
+                disconnect();
+            }
+        }
+        log.severe("Dropped a batch of " + events.size() + " events");
+    }
+
+    private void connectIfNeeded() throws JMSException {
+        if (session != null)
+            return;
+        connection = connectionFactory.createConnection();
+        session = connection.createSession(true, Session.SESSION_TRANSACTED);
+        producer = session.createProducer(session.createQueue(responseQueue));
+    }
+
+    private void disconnect() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (JMSException ex) {
+                log.log(Level.FINE, "Closing the publisher connection failed", ex);
+            }
+        }
+        connection = null;
+        session = null;
+        producer = null;
+    }
+}
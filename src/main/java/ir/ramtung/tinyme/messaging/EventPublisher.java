@@ -1,6 +1,7 @@
 package ir.ramtung.tinyme.messaging;
 
 import ir.ramtung.tinyme.messaging.event.Event;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Component;
@@ -11,15 +12,37 @@ import java.util.logging.Logger;
 public class EventPublisher {
     private final Logger log = Logger.getLogger(this.getClass().getName());
     private final JmsTemplate jmsTemplate;
-    @Value("${responseQueue}")
-    private String responseQueue;
+    private final String responseQueue;
+    private final AsyncEventSender asyncSender;
 
-    public EventPublisher(JmsTemplate jmsTemplate) {
+    public EventPublisher(JmsTemplate jmsTemplate,
+                          @Value("${responseQueue}") String responseQueue,
+                          @Value("${tinyme.publisher.mode:sync}") String mode,
+                          @Value("${tinyme.publisher.queue-capacity:65536}") int queueCapacity,
+                          @Value("${tinyme.publisher.max-batch-size:256}") int maxBatchSize,
+                          @Value("${tinyme.publisher.max-linger-micros:500}") long maxLingerMicros) {
         this.jmsTemplate = jmsTemplate;
+        this.responseQueue = responseQueue;
+        if (mode.equals("async")) {
+            asyncSender = new AsyncEventSender(jmsTemplate.getConnectionFactory(), jmsTemplate.getMessageConverter(),
+                    responseQueue, queueCapacity, maxBatchSize, maxLingerMicros);
+            asyncSender.start();
+        } else {
+            asyncSender = null;
+        }
     }
 
     public void publish(Event event) {
         log.info("Published : " + event);
-        jmsTemplate.convertAndSend(responseQueue, event);
+        if (asyncSender != null)
+            asyncSender.enqueue(event);
+        else
+            jmsTemplate.convertAndSend(responseQueue, event);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (asyncSender != null)
+            asyncSender.close();
     }
 }
@@ -1,5 +1,7 @@
 package ir.ramtung.tinyme.messaging;
 
+import ir.ramtung.tinyme.messaging.codec.BinaryMessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
@@ -8,11 +10,20 @@ import org.springframework.jms.support.converter.MessageType;
 
 @Configuration
 public class MessagingConfig {
+    private static final String TYPE_ID_PROPERTY_NAME = "_type";
+
     @Bean
+    @ConditionalOnProperty(name = "tinyme.messaging.codec", havingValue = "json", matchIfMissing = true)
     public MessageConverter jacksonJmsMessageConverter() {
         MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
         converter.setTargetType(MessageType.TEXT);
-        converter.setTypeIdPropertyName("_type");
+        converter.setTypeIdPropertyName(TYPE_ID_PROPERTY_NAME);
         return converter;
     }
+
+    @Bean
+    @ConditionalOnProperty(name = "tinyme.messaging.codec", havingValue = "binary")
+    public MessageConverter binaryJmsMessageConverter() {
+        return new BinaryMessageConverter(TYPE_ID_PROPERTY_NAME);
+    }
 }
@@ -0,0 +1,35 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.pipeline.RequestPipeline;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.stereotype.Component;
+
+import java.util.logging.Logger;
+
+// The message is converted here, on the listener thread, so a malformed one fails the delivery
+// instead of a pipeline stage. Like RequestDispatcher, the message is acknowledged as soon as the
+// ring buffer takes its request: delivery is at most once, and the buffer size caps how many
+// requests a crash can lose.
+@Component
+@ConditionalOnProperty(name = "tinyme.engine.mode", havingValue = "pipeline")
+public class PipelineRequestDispatcher {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestPipeline requestPipeline;
+    private final MessageConverter messageConverter;
+
+    public PipelineRequestDispatcher(RequestPipeline requestPipeline, MessageConverter messageConverter) {
+        this.requestPipeline = requestPipeline;
+        this.messageConverter = messageConverter;
+    }
+
+    @JmsListener(destination = "${requestQueue}")
+    public void receiveRequest(Message message) throws JMSException, InterruptedException {
+        Object request = messageConverter.fromMessage(message);
+        log.info("Received message: " + request);
+        requestPipeline.submit(request);
+    }
+}
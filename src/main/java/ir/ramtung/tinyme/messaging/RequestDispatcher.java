@@ -3,29 +3,44 @@ package ir.ramtung.tinyme.messaging;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
 import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.domain.service.RequestSequencer;
+import ir.ramtung.tinyme.metrics.RequestMetrics;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
 import java.util.logging.Logger;
 
+// Requests are converted here, on the listener thread, and the message is acknowledged as soon as
+// the sequencer takes it. A request still waiting in a shard queue when the engine dies is lost:
+// delivery is at most once, and the bounded shard queues cap how many requests that can be.
 @Component
+@ConditionalOnExpression("'${tinyme.engine.mode:direct}' != 'pipeline'")
 public class RequestDispatcher {
     private final Logger log = Logger.getLogger(this.getClass().getName());
     private final OrderHandler orderHandler;
+    private final RequestSequencer requestSequencer;
+    private final RequestMetrics requestMetrics;
 
-    public RequestDispatcher(OrderHandler orderHandler) {
+    public RequestDispatcher(OrderHandler orderHandler, RequestSequencer requestSequencer, RequestMetrics requestMetrics) {
         this.orderHandler = orderHandler;
+        this.requestSequencer = requestSequencer;
+        this.requestMetrics = requestMetrics;
     }
 
     @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.EnterOrderRq'")
     public void receiveEnterOrderRq(EnterOrderRq enterOrderRq) {
+        long receivedNanos = requestMetrics.now();
         log.info("Received message: " + enterOrderRq);
-        orderHandler.handleEnterOrder(enterOrderRq);
+        requestSequencer.submit(enterOrderRq.getSecurityIsin(), () -> orderHandler.handleEnterOrder(enterOrderRq, receivedNanos),
+                () -> orderHandler.rejectFailedRequest(enterOrderRq));
     }
 
     @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.DeleteOrderRq'")
     public void receiveDeleteOrderRq(DeleteOrderRq deleteOrderRq) {
+        long receivedNanos = requestMetrics.now();
         log.info("Received message: " + deleteOrderRq);
-        orderHandler.handleDeleteOrder(deleteOrderRq);
+        requestSequencer.submit(deleteOrderRq.getSecurityIsin(), () -> orderHandler.handleDeleteOrder(deleteOrderRq, receivedNanos),
+                () -> orderHandler.rejectFailedRequest(deleteOrderRq));
     }
 }
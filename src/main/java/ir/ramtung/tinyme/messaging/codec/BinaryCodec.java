@@ -0,0 +1,230 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.OrderEntryType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BinaryCodec {
+    public static final byte VERSION = 1;
+
+    static final byte ENTER_ORDER_RQ = 1;
+    static final byte DELETE_ORDER_RQ = 2;
+    static final byte ORDER_ACCEPTED = 16;
+    static final byte ORDER_UPDATED = 17;
+    static final byte ORDER_DELETED = 18;
+    static final byte ORDER_EXECUTED = 19;
+    static final byte ORDER_REJECTED = 20;
+
+    private static final byte NULL_ENUM = -1;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final Side[] SIDES = Side.values();
+    private static final OrderEntryType[] ENTRY_TYPES = OrderEntryType.values();
+
+    private BinaryCodec() {
+    }
+
+    public static boolean supports(Class<?> type) {
+        return type == EnterOrderRq.class || type == DeleteOrderRq.class
+                || type == OrderAcceptedEvent.class || type == OrderUpdatedEvent.class || type == OrderDeletedEvent.class
+                || type == OrderExecutedEvent.class || type == OrderRejectedEvent.class;
+    }
+
+    public static void encode(Object object, ByteBuffer buffer) {
+        buffer.put(VERSION);
+        if (object instanceof EnterOrderRq rq) {
+            buffer.put(ENTER_ORDER_RQ);
+            buffer.put(ordinal(rq.getRequestType()));
+            buffer.putLong(rq.getRequestId());
+            buffer.putLong(rq.getOrderId());
+            putTime(buffer, rq.getEntryTime());
+            buffer.put(ordinal(rq.getSide()));
+            buffer.putInt(rq.getQuantity());
+            buffer.putInt(rq.getPrice());
+            buffer.putLong(rq.getBrokerId());
+            buffer.putLong(rq.getShareholderId());
+            buffer.putInt(rq.getPeakSize());
+            putString(buffer, rq.getSecurityIsin());
+        } else if (object instanceof DeleteOrderRq rq) {
+            buffer.put(DELETE_ORDER_RQ);
+            buffer.putLong(rq.getRequestId());
+            buffer.putLong(rq.getOrderId());
+            putTime(buffer, rq.getEntryTime());
+            buffer.put(ordinal(rq.getSide()));
+            putString(buffer, rq.getSecurityIsin());
+        } else if (object instanceof OrderAcceptedEvent event) {
+            putEventHeader(buffer, ORDER_ACCEPTED, event, event.getRequestId(), event.getOrderId());
+        } else if (object instanceof OrderUpdatedEvent event) {
+            putEventHeader(buffer, ORDER_UPDATED, event, event.getRequestId(), event.getOrderId());
+        } else if (object instanceof OrderDeletedEvent event) {
+            putEventHeader(buffer, ORDER_DELETED, event, event.getRequestId(), event.getOrderId());
+        } else if (object instanceof OrderExecutedEvent event) {
+            putEventHeader(buffer, ORDER_EXECUTED, event, event.getRequestId(), event.getOrderId());
+            List<TradeDTO> trades = event.getTrades();
+            buffer.putInt(trades == null ? -1 : trades.size());
+            if (trades != null) {
+                for (TradeDTO trade : trades) {
+                    buffer.putInt(trade.price());
+                    buffer.putInt(trade.quantity());
+                    buffer.putLong(trade.buyOrderId());
+                    buffer.putLong(trade.sellOrderId());
+                    putString(buffer, trade.securityIsin());
+                }
+            }
+        } else if (object instanceof OrderRejectedEvent event) {
+            putEventHeader(buffer, ORDER_REJECTED, event, event.getRequestId(), event.getOrderId());
+            List<String> errors = event.getErrors();
+            buffer.putInt(errors == null ? -1 : errors.size());
+            if (errors != null) {
+                for (String error : errors)
+                    putString(buffer, error);
+            }
+        } else {
+            throw new IllegalArgumentException("No binary encoding for " + object.getClass().getName());
+        }
+    }
+
+    public static Object decode(ByteBuffer buffer) {
+        byte version = buffer.get();
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unsupported binary message version " + version);
+        byte tag = buffer.get();
+        return switch (tag) {
+            case ENTER_ORDER_RQ -> decodeEnterOrderRq(buffer);
+            case DELETE_ORDER_RQ -> decodeDeleteOrderRq(buffer);
+            case ORDER_ACCEPTED -> new OrderAcceptedEvent(getTime(buffer), buffer.getLong(), buffer.getLong());
+            case ORDER_UPDATED -> new OrderUpdatedEvent(getTime(buffer), buffer.getLong(), buffer.getLong());
+            case ORDER_DELETED -> new OrderDeletedEvent(getTime(buffer), buffer.getLong(), buffer.getLong());
+            case ORDER_EXECUTED -> decodeOrderExecutedEvent(buffer);
+            case ORDER_REJECTED -> decodeOrderRejectedEvent(buffer);
+            default -> throw new IllegalArgumentException("Unknown binary message tag " + tag);
+        };
+    }
+
+    private static EnterOrderRq decodeEnterOrderRq(ByteBuffer buffer) {
+        EnterOrderRq rq = new EnterOrderRq();
+        byte requestType = buffer.get();
+        rq.setRequestType(requestType == NULL_ENUM ? null : ENTRY_TYPES[requestType]);
+        rq.setRequestId(buffer.getLong());
+        rq.setOrderId(buffer.getLong());
+        rq.setEntryTime(getTime(buffer));
+        rq.setSide(getSide(buffer));
+        rq.setQuantity(buffer.getInt());
+        rq.setPrice(buffer.getInt());
+        rq.setBrokerId(buffer.getLong());
+        rq.setShareholderId(buffer.getLong());
+        rq.setPeakSize(buffer.getInt());
+        rq.setSecurityIsin(getString(buffer));
+        return rq;
+    }
+
+    private static DeleteOrderRq decodeDeleteOrderRq(ByteBuffer buffer) {
+        long requestId = buffer.getLong();
+        long orderId = buffer.getLong();
+        LocalDateTime entryTime = getTime(buffer);
+        Side side = getSide(buffer);
+        return new DeleteOrderRq(requestId, getString(buffer), side, orderId, entryTime);
+    }
+
+    private static OrderExecutedEvent decodeOrderExecutedEvent(ByteBuffer buffer) {
+        LocalDateTime time = getTime(buffer);
+        long requestId = buffer.getLong();
+        long orderId = buffer.getLong();
+        int count = buffer.getInt();
+        List<TradeDTO> trades = null;
+        if (count >= 0) {
+            trades = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int price = buffer.getInt();
+                int quantity = buffer.getInt();
+                long buyOrderId = buffer.getLong();
+                long sellOrderId = buffer.getLong();
+                trades.add(new TradeDTO(getString(buffer), price, quantity, buyOrderId, sellOrderId));
+            }
+        }
+        return new OrderExecutedEvent(time, requestId, orderId, trades);
+    }
+
+    private static OrderRejectedEvent decodeOrderRejectedEvent(ByteBuffer buffer) {
+        LocalDateTime time = getTime(buffer);
+        long requestId = buffer.getLong();
+        long orderId = buffer.getLong();
+        int count = buffer.getInt();
+        List<String> errors = null;
+        if (count >= 0) {
+            errors = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+                errors.add(getString(buffer));
+        }
+        return new OrderRejectedEvent(time, requestId, orderId, errors);
+    }
+
+    private static void putEventHeader(ByteBuffer buffer, byte tag, Event event, long requestId, long orderId) {
+        buffer.put(tag);
+        putTime(buffer, event.getTime());
+        buffer.putLong(requestId);
+        buffer.putLong(orderId);
+    }
+
+    private static byte ordinal(Enum<?> value) {
+        return value == null ? NULL_ENUM : (byte) value.ordinal();
+    }
+
+    private static Side getSide(ByteBuffer buffer) {
+        byte side = buffer.get();
+        return side == NULL_ENUM ? null : SIDES[side];
+    }
+
+    private static void putTime(ByteBuffer buffer, LocalDateTime time) {
+        if (time == null) {
+            buffer.putLong(NULL_TIME);
+            buffer.putInt(0);
+        } else {
+            buffer.putLong(time.toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(time.getNano());
+        }
+    }
+
+    private static LocalDateTime getTime(ByteBuffer buffer) {
+        long epochSecond = buffer.getLong();
+        int nano = buffer.getInt();
+        return epochSecond == NULL_TIME ? null : LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE)
+            throw new IllegalArgumentException("String too long for binary encoding: " + bytes.length + " bytes");
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort();
+        if (length < 0)
+            return null;
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            buffer.get(buffer.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
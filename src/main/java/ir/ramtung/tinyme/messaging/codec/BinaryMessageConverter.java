@@ -0,0 +1,67 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+
+public class BinaryMessageConverter implements MessageConverter {
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private final String typeIdPropertyName;
+    private final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(INITIAL_BUFFER_SIZE));
+
+    public BinaryMessageConverter(String typeIdPropertyName) {
+        this.typeIdPropertyName = typeIdPropertyName;
+    }
+
+    @Override
+    public Message toMessage(Object object, Session session) throws JMSException {
+        if (!BinaryCodec.supports(object.getClass()))
+            throw new MessageConversionException("No binary encoding for " + object.getClass().getName());
+        ByteBuffer buffer = encode(object);
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(buffer.array(), 0, buffer.position());
+        message.setStringProperty(typeIdPropertyName, object.getClass().getName());
+        return message;
+    }
+
+    private ByteBuffer encode(Object object) {
+        ByteBuffer buffer = buffers.get();
+        while (true) {
+            buffer.clear();
+            try {
+                BinaryCodec.encode(object, buffer);
+                return buffer;
+            } catch (BufferOverflowException ex) {
+                buffer = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffers.set(buffer);
+            }
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException {
+        if (!(message instanceof BytesMessage bytesMessage))
+            throw new MessageConversionException("Expected a BytesMessage but received " + message.getClass().getName());
+        int length = (int) bytesMessage.getBodyLength();
+        ByteBuffer buffer = buffers.get();
+        if (buffer.capacity() < length) {
+            buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+            buffers.set(buffer);
+        }
+        buffer.clear();
+        bytesMessage.readBytes(buffer.array(), length);
+        buffer.limit(length);
+        try {
+            return BinaryCodec.decode(buffer);
+        } catch (RuntimeException ex) {
+            throw new MessageConversionException("Malformed binary message", ex);
+        }
+    }
+}
@@ -5,6 +5,8 @@ import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Data
 @EqualsAndHashCode(callSuper = false)
 @AllArgsConstructor
@@ -12,4 +14,10 @@ import lombok.NoArgsConstructor;
 public class OrderUpdatedEvent extends Event {
     private long requestId;
     private long orderId;
+
+    public OrderUpdatedEvent(LocalDateTime time, long requestId, long orderId) {
+        super(time);
+        this.requestId = requestId;
+        this.orderId = orderId;
+    }
 }
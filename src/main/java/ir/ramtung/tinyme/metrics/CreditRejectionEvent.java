@@ -0,0 +1,21 @@
+package ir.ramtung.tinyme.metrics;
+
+import jdk.jfr.*;
+
+@Name("tinyme.CreditRejection")
+@Label("Credit Rejection")
+@Category({"TinyME", "Matching"})
+@Description("A buy order was rejected by the credit dry run before any trade was made")
+@StackTrace(false)
+public class CreditRejectionEvent extends Event {
+    @Label("ISIN")
+    public String isin;
+    @Label("Order Id")
+    public long orderId;
+    @Label("Broker Id")
+    public long brokerId;
+    @Label("Required Credit")
+    public long requiredCredit;
+    @Label("Available Credit")
+    public long availableCredit;
+}
@@ -0,0 +1,24 @@
+package ir.ramtung.tinyme.metrics;
+
+import jdk.jfr.*;
+
+@Name("tinyme.Enqueue")
+@Label("Enqueue")
+@Category({"TinyME", "Order Book"})
+@Description("An order was queued in its order book; disabled by default because it fires for every resting order")
+@Enabled(false)
+@StackTrace(false)
+public class EnqueueEvent extends Event {
+    @Label("ISIN")
+    public String isin;
+    @Label("Side")
+    public String side;
+    @Label("Price")
+    public int price;
+    @Label("Price Levels")
+    public int levelCount;
+    @Label("New Level")
+    public boolean newLevel;
+    @Label("Orders On Side")
+    public int sideSize;
+}
@@ -0,0 +1,33 @@
+package ir.ramtung.tinyme.metrics;
+
+import jdk.jfr.EventType;
+
+/**
+ * Cheap checks for the events emitted on the matching path, so that the event objects are
+ * only allocated while a recording has them enabled.
+ */
+public final class FlightEvents {
+    private static final EventType MATCHING = EventType.getEventType(MatchingEvent.class);
+    private static final EventType ENQUEUE = EventType.getEventType(EnqueueEvent.class);
+    private static final EventType CREDIT_REJECTION = EventType.getEventType(CreditRejectionEvent.class);
+    private static final EventType UPDATE_ROLLBACK = EventType.getEventType(UpdateRollbackEvent.class);
+
+    private FlightEvents() {
+    }
+
+    public static boolean matchingEnabled() {
+        return MATCHING.isEnabled();
+    }
+
+    public static boolean enqueueEnabled() {
+        return ENQUEUE.isEnabled();
+    }
+
+    public static boolean creditRejectionEnabled() {
+        return CREDIT_REJECTION.isEnabled();
+    }
+
+    public static boolean updateRollbackEnabled() {
+        return UPDATE_ROLLBACK.isEnabled();
+    }
+}
@@ -0,0 +1,12 @@
+package ir.ramtung.tinyme.metrics;
+
+public interface LatencyHistogramMXBean {
+    long getCount();
+    double getMeanMicros();
+    double getP50Micros();
+    double getP90Micros();
+    double getP99Micros();
+    double getP999Micros();
+    double getMaxMicros();
+    void reset();
+}
@@ -0,0 +1,23 @@
+package ir.ramtung.tinyme.metrics;
+
+import jdk.jfr.*;
+
+@Name("tinyme.Matching")
+@Label("Matching")
+@Category({"TinyME", "Matching"})
+@Description("An incoming order matched against the opposite side of its order book")
+@StackTrace(false)
+public class MatchingEvent extends Event {
+    @Label("ISIN")
+    public String isin;
+    @Label("Side")
+    public String side;
+    @Label("Order Id")
+    public long orderId;
+    @Label("Levels Crossed")
+    public int levelsCrossed;
+    @Label("Trade Count")
+    public int tradeCount;
+    @Label("Traded Quantity")
+    public long tradedQuantity;
+}
@@ -0,0 +1,11 @@
+package ir.ramtung.tinyme.metrics;
+
+public enum Outcome {
+    ACCEPTED,
+    EXECUTED,
+    UPDATED,
+    DELETED,
+    REJECTED_INVALID,
+    REJECTED_CREDIT,
+    REJECTED_POSITIONS
+}
@@ -0,0 +1,34 @@
+package ir.ramtung.tinyme.metrics;
+
+import jdk.jfr.*;
+
+@Name("tinyme.Persistence")
+@Label("Persistence Phase")
+@Category({"TinyME", "Persistence"})
+@Description("One load or save phase of the persistent state")
+@StackTrace(false)
+public class PersistenceEvent extends Event {
+    @Label("Phase")
+    public String phase;
+    @Label("Rows")
+    public long rows;
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+
+    public static PersistenceEvent start(String phase) {
+        PersistenceEvent event = new PersistenceEvent();
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+
+    public void end(long rows, long bytes) {
+        end();
+        if (shouldCommit()) {
+            this.rows = rows;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package ir.ramtung.tinyme.metrics;
+
+public enum RequestKind {
+    NEW_ORDER,
+    UPDATE_ORDER,
+    DELETE_ORDER
+}
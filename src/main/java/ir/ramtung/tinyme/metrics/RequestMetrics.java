@@ -0,0 +1,89 @@
+package ir.ramtung.tinyme.metrics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-stage request latency, broken down by request kind and outcome. Histograms are exported over JMX as
+ * {@code ir.ramtung.tinyme:type=RequestLatency,request=...,outcome=...,stage=...}. When disabled every timing call
+ * returns before reading the clock.
+ */
+@Component
+public class RequestMetrics {
+    private static final RequestMetrics DISABLED = new RequestMetrics(false);
+    private static final Stage[] STAGES = Stage.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final boolean enabled;
+    private final RequestTiming idle = new RequestTiming(this);
+    private final ThreadLocal<RequestTiming> timings = ThreadLocal.withInitial(() -> new RequestTiming(this));
+    private final LatencyHistogram[] histograms;
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    public RequestMetrics(@Value("${tinyme.metrics.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+        histograms = new LatencyHistogram[enabled ? RequestKind.values().length * OUTCOMES.length * STAGES.length : 0];
+        for (int i = 0; i < histograms.length; i++)
+            histograms[i] = new LatencyHistogram();
+    }
+
+    public static RequestMetrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long now() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public RequestTiming start(RequestKind kind, long receivedNanos) {
+        if (!enabled)
+            return idle;
+        RequestTiming timing = timings.get();
+        timing.start(kind, receivedNanos);
+        return timing;
+    }
+
+    public RequestTiming current() {
+        return enabled ? timings.get() : idle;
+    }
+
+    public LatencyHistogram histogram(RequestKind kind, Outcome outcome, Stage stage) {
+        return histograms[(kind.ordinal() * OUTCOMES.length + outcome.ordinal()) * STAGES.length + stage.ordinal()];
+    }
+
+    @PostConstruct
+    public void register() throws JMException {
+        if (!enabled)
+            return;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (RequestKind kind : RequestKind.values())
+            for (Outcome outcome : OUTCOMES)
+                for (Stage stage : STAGES) {
+                    ObjectName name = new ObjectName("ir.ramtung.tinyme:type=RequestLatency,request=" + kind
+                            + ",outcome=" + outcome + ",stage=" + stage);
+                    server.registerMBean(histogram(kind, outcome, stage), name);
+                    registeredNames.add(name);
+                }
+    }
+
+    @PreDestroy
+    public void unregister() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames)
+            server.unregisterMBean(name);
+        registeredNames.clear();
+    }
+}
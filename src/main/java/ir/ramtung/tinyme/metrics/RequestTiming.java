@@ -0,0 +1,58 @@
+package ir.ramtung.tinyme.metrics;
+
+public class RequestTiming {
+    private final RequestMetrics metrics;
+    private final long[] stageNanos = new long[Stage.values().length];
+    private int visitedStages;
+    private boolean active;
+    private RequestKind kind;
+    private Outcome outcome;
+    private long startNanos;
+    private long lastNanos;
+
+    RequestTiming(RequestMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    void start(RequestKind kind, long receivedNanos) {
+        this.kind = kind;
+        this.outcome = null;
+        this.active = true;
+        visitedStages = 0;
+        startNanos = receivedNanos != 0 ? receivedNanos : System.nanoTime();
+        lastNanos = startNanos;
+        if (receivedNanos != 0)
+            lap(Stage.DISPATCH);
+    }
+
+    public void lap(Stage stage) {
+        if (!active)
+            return;
+        long now = System.nanoTime();
+        int index = stage.ordinal();
+        if ((visitedStages & (1 << index)) == 0) {
+            stageNanos[index] = 0;
+            visitedStages |= 1 << index;
+        }
+        stageNanos[index] += now - lastNanos;
+        lastNanos = now;
+    }
+
+    public void outcome(Outcome outcome) {
+        if (active)
+            this.outcome = outcome;
+    }
+
+    public void finish() {
+        if (!active)
+            return;
+        active = false;
+        if (outcome == null)
+            return;
+        stageNanos[Stage.TOTAL.ordinal()] = System.nanoTime() - startNanos;
+        visitedStages |= 1 << Stage.TOTAL.ordinal();
+        for (Stage stage : Stage.values())
+            if ((visitedStages & (1 << stage.ordinal())) != 0)
+                metrics.histogram(kind, outcome, stage).record(stageNanos[stage.ordinal()]);
+    }
+}
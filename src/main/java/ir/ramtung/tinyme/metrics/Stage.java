@@ -0,0 +1,12 @@
+package ir.ramtung.tinyme.metrics;
+
+public enum Stage {
+    DISPATCH,
+    VALIDATION,
+    JOURNAL,
+    LOOKUP,
+    ORDER,
+    MATCH,
+    PUBLISH,
+    TOTAL
+}
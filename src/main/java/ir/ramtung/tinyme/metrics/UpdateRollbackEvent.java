@@ -0,0 +1,17 @@
+package ir.ramtung.tinyme.metrics;
+
+import jdk.jfr.*;
+
+@Name("tinyme.UpdateRollback")
+@Label("Update Rollback")
+@Category({"TinyME", "Matching"})
+@Description("An order update was rejected and the original order was put back in the book")
+@StackTrace(false)
+public class UpdateRollbackEvent extends Event {
+    @Label("ISIN")
+    public String isin;
+    @Label("Order Id")
+    public long orderId;
+    @Label("Outcome")
+    public String outcome;
+}
@@ -0,0 +1,23 @@
+package ir.ramtung.tinyme.pipeline;
+
+import ir.ramtung.tinyme.domain.service.RequestContext;
+import ir.ramtung.tinyme.messaging.event.Event;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+class RequestEntry {
+    Object request;
+    final RequestContext context = new RequestContext();
+    boolean failed;
+    Runnable exclusiveTask;
+    final ArrayList<Event> events = new ArrayList<>(4);
+    final Consumer<Event> eventSink = events::add;
+
+    void reset(Object request) {
+        this.request = request;
+        this.failed = false;
+        this.exclusiveTask = null;
+        this.events.clear();
+    }
+}
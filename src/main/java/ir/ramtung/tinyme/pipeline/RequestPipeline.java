@@ -0,0 +1,167 @@
+package ir.ramtung.tinyme.pipeline;
+
+import ir.ramtung.tinyme.domain.service.MatchingBarrier;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+@ConditionalOnProperty(name = "tinyme.engine.mode", havingValue = "pipeline")
+public class RequestPipeline implements MatchingBarrier, SmartLifecycle {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final OrderHandler orderHandler;
+    private final EventPublisher eventPublisher;
+    private final RingBuffer<RequestEntry> ringBuffer;
+    private final List<StageProcessor<RequestEntry>> stages;
+    private Thread[] threads;
+    private volatile boolean running;
+
+    public RequestPipeline(OrderHandler orderHandler, EventPublisher eventPublisher,
+                           @Value("${tinyme.pipeline.buffer-size:1024}") int bufferSize,
+                           @Value("${tinyme.pipeline.wait-strategy:block}") String waitStrategy) {
+        this.orderHandler = orderHandler;
+        this.eventPublisher = eventPublisher;
+        this.ringBuffer = new RingBuffer<>(bufferSize, RequestEntry::new, WaitStrategy.forName(waitStrategy));
+
+        StageProcessor<RequestEntry> validation = new StageProcessor<>("validation", ringBuffer, null, this::validate);
+        StageProcessor<RequestEntry> matching = new StageProcessor<>("matching", ringBuffer, validation.getSequence(), this::match);
+        StageProcessor<RequestEntry> publication = new StageProcessor<>("publication", ringBuffer, matching.getSequence(), this::publish);
+        this.stages = List.of(validation, matching, publication);
+        ringBuffer.setGatingSequences(publication.getSequence());
+    }
+
+    public void submit(Object request) throws InterruptedException {
+        long sequence = ringBuffer.next();
+        ringBuffer.get(sequence).reset(request);
+        ringBuffer.publish(sequence);
+    }
+
+    @Override
+    public void pauseAndRun(Runnable task) throws InterruptedException {
+        if (!running) {
+            task.run();
+            return;
+        }
+        FutureTask<Void> future = new FutureTask<>(task, null);
+        long sequence = ringBuffer.next();
+        RequestEntry entry = ringBuffer.get(sequence);
+        entry.reset(null);
+        entry.exclusiveTask = future;
+        ringBuffer.publish(sequence);
+        try {
+            future.get();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Task run by the matching stage failed", ex.getCause());
+        }
+    }
+
+    private void validate(RequestEntry entry) {
+        try {
+            if (entry.request instanceof EnterOrderRq enterOrderRq)
+                orderHandler.validateEnterOrderRq(enterOrderRq, entry.context);
+            else if (entry.request instanceof DeleteOrderRq deleteOrderRq)
+                orderHandler.validateDeleteOrderRq(deleteOrderRq, entry.context);
+        } catch (RuntimeException ex) {
+            fail(entry, "Validating", ex);
+        }
+    }
+
+    private void match(RequestEntry entry) {
+        if (entry.exclusiveTask != null) {
+            entry.exclusiveTask.run();
+            return;
+        }
+        if (entry.failed)
+            return;
+        try {
+            matchValidated(entry);
+        } catch (RuntimeException ex) {
+            fail(entry, "Matching", ex);
+        }
+    }
+
+    private void matchValidated(RequestEntry entry) {
+        if (entry.request instanceof EnterOrderRq enterOrderRq) {
+            if (!entry.context.isValid())
+                entry.events.add(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), entry.context.reasons()));
+            else
+                orderHandler.processEnterOrder(enterOrderRq, entry.context, entry.eventSink);
+        } else if (entry.request instanceof DeleteOrderRq deleteOrderRq) {
+            if (!entry.context.isValid())
+                entry.events.add(new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), entry.context.reasons()));
+            else
+                orderHandler.processDeleteOrder(deleteOrderRq, entry.context, entry.eventSink);
+        }
+    }
+
+    // a request that failed in any stage is answered with a rejection instead of what it
+    // managed to produce before failing
+    private void fail(RequestEntry entry, String stage, RuntimeException ex) {
+        log.log(Level.SEVERE, stage + " " + entry.request + " failed", ex);
+        entry.failed = true;
+    }
+
+    private void publish(RequestEntry entry) {
+        try {
+            if (entry.failed) {
+                entry.events.clear();
+                orderHandler.rejectFailedRequest(entry.request, entry.eventSink);
+            }
+            for (Event event : entry.events)
+                eventPublisher.publish(event);
+        } catch (RuntimeException ex) {
+            log.log(Level.SEVERE, "Publishing the events of " + entry.request + " failed", ex);
+        } finally {
+            entry.events.clear();
+            entry.request = null;
+            entry.exclusiveTask = null;
+        }
+    }
+
+    @Override
+    public void start() {
+        threads = new Thread[stages.size()];
+        for (int i = 0; i < stages.size(); i++) {
+            threads[i] = new Thread(stages.get(i), "pipeline-" + stages.get(i).getName());
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        try {
+            for (int i = 0; i < stages.size(); i++) {
+                stages.get(i).halt();
+                threads[i].join();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 1;
+    }
+}
@@ -0,0 +1,75 @@
+package ir.ramtung.tinyme.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+public class RingBuffer<E> {
+    private final Object[] entries;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLongArray published;
+    private final WaitStrategy waitStrategy;
+    private AtomicLong[] gatingSequences = new AtomicLong[0];
+
+    public RingBuffer(int size, Supplier<E> entryFactory, WaitStrategy waitStrategy) {
+        if (size <= 0 || Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("Ring buffer size must be a power of two");
+        this.entries = new Object[size];
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            entries[i] = entryFactory.get();
+            published.set(i, -1);
+        }
+        this.waitStrategy = waitStrategy;
+    }
+
+    public void setGatingSequences(AtomicLong... sequences) {
+        this.gatingSequences = sequences;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+
+    public long next() throws InterruptedException {
+        long sequence = claimed.incrementAndGet();
+        long wrapPoint = sequence - entries.length;
+        while (wrapPoint > minimumGatingSequence())
+            waitStrategy.idle();
+        return sequence;
+    }
+
+    private long minimumGatingSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (AtomicLong sequence : gatingSequences)
+            minimum = Math.min(minimum, sequence.get());
+        return minimum;
+    }
+
+    @SuppressWarnings("unchecked")
+    public E get(long sequence) {
+        return (E) entries[(int) sequence & mask];
+    }
+
+    public void publish(long sequence) {
+        published.set((int) sequence & mask, sequence);
+        waitStrategy.signalAll();
+    }
+
+    public boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == sequence;
+    }
+
+    public long highestPublished(long from) {
+        long sequence = from;
+        while (isPublished(sequence))
+            sequence++;
+        return sequence - 1;
+    }
+}
@@ -0,0 +1,73 @@
+package ir.ramtung.tinyme.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class StageProcessor<E> implements Runnable {
+    public interface Handler<E> {
+        void onEntry(E entry) throws Exception;
+    }
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final String name;
+    private final RingBuffer<E> ringBuffer;
+    private final AtomicLong previousStage;
+    private final Handler<E> handler;
+    private final AtomicLong sequence = new AtomicLong(-1);
+    private volatile boolean running = true;
+
+    public StageProcessor(String name, RingBuffer<E> ringBuffer, AtomicLong previousStage, Handler<E> handler) {
+        this.name = name;
+        this.ringBuffer = ringBuffer;
+        this.previousStage = previousStage;
+        this.handler = handler;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AtomicLong getSequence() {
+        return sequence;
+    }
+
+    public void halt() {
+        running = false;
+    }
+
+    private long available(long next) {
+        if (previousStage == null)
+            return ringBuffer.highestPublished(next);
+        return previousStage.get();
+    }
+
+    @Override
+    public void run() {
+        WaitStrategy waitStrategy = ringBuffer.getWaitStrategy();
+        long next = sequence.get() + 1;
+        try {
+            while (true) {
+                long available = available(next);
+                if (available < next) {
+                    if (!running)
+                        return;
+                    waitStrategy.idle();
+                    continue;
+                }
+                for (long s = next; s <= available; s++) {
+                    try {
+                        handler.onEntry(ringBuffer.get(s));
+                    } catch (Exception ex) {
+                        log.log(Level.SEVERE, name + " stage failed on entry " + s, ex);
+                    }
+                }
+                sequence.set(available);
+                waitStrategy.signalAll();
+                next = available + 1;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package ir.ramtung.tinyme.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public interface WaitStrategy {
+    void idle() throws InterruptedException;
+
+    void signalAll();
+
+    static WaitStrategy forName(String name) {
+        return switch (name) {
+            case "busy-spin" -> new BusySpin();
+            case "yield" -> new Yielding();
+            case "block" -> new Blocking();
+            default -> throw new IllegalArgumentException("Unknown wait strategy: " + name);
+        };
+    }
+
+    class BusySpin implements WaitStrategy {
+        @Override
+        public void idle() {
+            Thread.onSpinWait();
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    class Yielding implements WaitStrategy {
+        @Override
+        public void idle() {
+            Thread.yield();
+        }
+
+        @Override
+        public void signalAll() {
+        }
+    }
+
+    class Blocking implements WaitStrategy {
+        private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition progress = lock.newCondition();
+
+        @Override
+        public void idle() throws InterruptedException {
+            lock.lock();
+            try {
+                // bounded so that a signal sent between the caller's check and this wait is never lost for long
+                progress.awaitNanos(MAX_PARK_NANOS);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            lock.lock();
+            try {
+                progress.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
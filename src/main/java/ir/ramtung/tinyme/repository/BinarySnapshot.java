@@ -0,0 +1,211 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Layout (big-endian): magic, version, the journal sequence the state includes, then the securities, brokers, shareholders with their positions,
+// and finally every order book side in priority order, so loading only appends to the tail of each side.
+public final class BinarySnapshot {
+    static final int MAGIC = 0x544D5353;
+    static final int VERSION = 2;
+
+    private static final byte PLAIN_ORDER = 0;
+    private static final byte ICEBERG_ORDER = 1;
+
+    private BinarySnapshot() {
+    }
+
+    public static byte[] capture(long journalSequence, BrokerRepository brokerRepository, ShareholderRepository shareholderRepository,
+                                 SecurityRepository securityRepository) {
+        ByteArrayOutputStream image = new ByteArrayOutputStream(1 << 16);
+        try (DataOutputStream out = new DataOutputStream(image)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalSequence);
+
+            List<Security> securities = new ArrayList<>();
+            securityRepository.allSecurities().forEach(securities::add);
+            Map<Security, Integer> securityIndex = new IdentityHashMap<>();
+            out.writeInt(securities.size());
+            for (Security security : securities) {
+                securityIndex.put(security, securityIndex.size());
+                writeString(out, security.getIsin());
+                out.writeInt(security.getTickSize());
+                out.writeInt(security.getLotSize());
+            }
+
+            List<Broker> brokers = new ArrayList<>();
+            brokerRepository.allBrokers().forEach(brokers::add);
+            out.writeInt(brokers.size());
+            for (Broker broker : brokers) {
+                out.writeLong(broker.getBrokerId());
+                out.writeLong(broker.getCredit());
+                writeString(out, broker.getName());
+            }
+
+            List<Shareholder> shareholders = new ArrayList<>();
+            shareholderRepository.allShareholders().forEach(shareholders::add);
+            out.writeInt(shareholders.size());
+            for (Shareholder shareholder : shareholders) {
+                out.writeLong(shareholder.getShareholderId());
+                writeString(out, shareholder.getName());
+                ByteArrayOutputStream positions = new ByteArrayOutputStream();
+                DataOutputStream positionsOut = new DataOutputStream(positions);
+                int[] positionCount = new int[1];
+                shareholder.forEachPosition(securityRepository::findSecurityByIndex, (security, quantity) -> {
+                    try {
+                        positionsOut.writeInt(securityIndex.get(security));
+                        positionsOut.writeInt(quantity);
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    positionCount[0]++;
+                });
+                out.writeInt(positionCount[0]);
+                positions.writeTo(out);
+            }
+
+            for (Security security : securities) {
+                writeSide(out, security.getOrderBook().getSide(Side.BUY));
+                writeSide(out, security.getOrderBook().getSide(Side.SELL));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return image.toByteArray();
+    }
+
+    public static void write(Path file, byte[] image) throws IOException {
+        AtomicFiles.write(file, image);
+    }
+
+    private static void writeSide(DataOutputStream out, BookSide side) throws IOException {
+        out.writeInt(side.getSize());
+        for (PriceLevel level : side.levels()) {
+            for (Order order : level) {
+                boolean iceberg = order instanceof IcebergOrder;
+                out.writeByte(iceberg ? ICEBERG_ORDER : PLAIN_ORDER);
+                out.writeLong(order.getOrderId());
+                out.writeInt(order.getTotalQuantity());
+                out.writeInt(order.getPrice());
+                out.writeLong(order.getBroker().getBrokerId());
+                out.writeLong(order.getShareholder().getShareholderId());
+                out.writeLong(order.getEntryTime().toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(order.getEntryTime().getNano());
+                if (iceberg) {
+                    IcebergOrder icebergOrder = (IcebergOrder) order;
+                    out.writeInt(icebergOrder.getPeakSize());
+                    out.writeInt(icebergOrder.getDisplayedQuantity());
+                }
+            }
+        }
+    }
+
+    public static long read(Path file, BrokerRepository brokerRepository, ShareholderRepository shareholderRepository,
+                            SecurityRepository securityRepository) throws IOException {
+        ByteBuffer in;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (in.getInt() != MAGIC)
+            throw new IOException(file + " is not a snapshot file");
+        int version = in.getInt();
+        if (version != 1 && version != VERSION)
+            throw new IOException("Unsupported snapshot version " + version + " in " + file);
+        long journalSequence = version == 1 ? 0 : in.getLong();
+
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+
+        Security[] securities = new Security[in.getInt()];
+        for (int i = 0; i < securities.length; i++) {
+            securities[i] = Security.builder()
+                    .isin(readString(in))
+                    .tickSize(in.getInt())
+                    .lotSize(in.getInt())
+                    .build();
+            securityRepository.addSecurity(securities[i]);
+        }
+
+        int brokerCount = in.getInt();
+        for (int i = 0; i < brokerCount; i++) {
+            long brokerId = in.getLong();
+            long credit = in.getLong();
+            brokerRepository.addBroker(Broker.builder()
+                    .brokerId(brokerId)
+                    .credit(credit)
+                    .name(readString(in))
+                    .build());
+        }
+
+        int shareholderCount = in.getInt();
+        for (int i = 0; i < shareholderCount; i++) {
+            Shareholder shareholder = Shareholder.builder()
+                    .shareholderId(in.getLong())
+                    .name(readString(in))
+                    .build();
+            int positionCount = in.getInt();
+            for (int j = 0; j < positionCount; j++) {
+                Security security = securities[in.getInt()];
+                shareholder.incPosition(security, in.getInt());
+            }
+            shareholderRepository.addShareholder(shareholder);
+        }
+
+        for (Security security : securities) {
+            readSide(in, security, Side.BUY, brokerRepository, shareholderRepository);
+            readSide(in, security, Side.SELL, brokerRepository, shareholderRepository);
+        }
+        return journalSequence;
+    }
+
+    private static void readSide(ByteBuffer in, Security security, Side side,
+                                 BrokerRepository brokerRepository, ShareholderRepository shareholderRepository) {
+        OrderBook orderBook = security.getOrderBook();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+            byte kind = in.get();
+            long orderId = in.getLong();
+            int quantity = in.getInt();
+            int price = in.getInt();
+            Broker broker = brokerRepository.findBrokerById(in.getLong());
+            Shareholder shareholder = shareholderRepository.findShareholderById(in.getLong());
+            LocalDateTime entryTime = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+            Order order;
+            if (kind == ICEBERG_ORDER)
+                order = new IcebergOrder(orderId, security, side, quantity, price, broker, shareholder, entryTime,
+                        in.getInt(), in.getInt(), OrderStatus.QUEUED);
+            else
+                order = new Order(orderId, security, side, quantity, price, broker, shareholder, entryTime, OrderStatus.QUEUED);
+            orderBook.restore(order);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
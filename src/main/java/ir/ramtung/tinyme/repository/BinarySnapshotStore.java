@@ -0,0 +1,47 @@
+package ir.ramtung.tinyme.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Component
+@ConditionalOnProperty(name = "tinyme.persistence.format", havingValue = "binary")
+public class BinarySnapshotStore implements SnapshotStore {
+    private final BrokerRepository brokerRepository;
+    private final ShareholderRepository shareholderRepository;
+    private final SecurityRepository securityRepository;
+    private final Path snapshotFile;
+
+    public BinarySnapshotStore(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, SecurityRepository securityRepository,
+                               @Value("${tinyme.persistence.snapshot-file:snapshot/tinyme.snapshot}") String snapshotFile) {
+        this.brokerRepository = brokerRepository;
+        this.shareholderRepository = shareholderRepository;
+        this.securityRepository = securityRepository;
+        this.snapshotFile = Path.of(snapshotFile);
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(snapshotFile);
+    }
+
+    @Override
+    public long load() throws IOException {
+        return BinarySnapshot.read(snapshotFile, brokerRepository, shareholderRepository, securityRepository);
+    }
+
+    @Override
+    public long size() throws IOException {
+        return Files.size(snapshotFile);
+    }
+
+    @Override
+    public Capture capture(long journalSequence) {
+        byte[] image = BinarySnapshot.capture(journalSequence, brokerRepository, shareholderRepository, securityRepository);
+        return () -> BinarySnapshot.write(snapshotFile, image);
+    }
+}
@@ -3,6 +3,9 @@ package ir.ramtung.tinyme.repository;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
 import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.journal.RequestJournal;
+import ir.ramtung.tinyme.metrics.PersistenceEvent;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Value;
@@ -15,10 +18,13 @@ import java.io.FileWriter;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.time.LocalDateTime;
-import java.util.Iterator;
-import java.util.LinkedList;
-import java.util.StringJoiner;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 @Component
 @Profile("!test")
@@ -27,11 +33,18 @@ public class DataLoader {
     private final BrokerRepository brokerRepository;
     private final ShareholderRepository shareholderRepository;
     private final SecurityRepository securityRepository;
+    private final OrderHandler orderHandler;
+    private final RequestJournal requestJournal;
+    private final Optional<SnapshotStore> snapshotStore;
 
-    public DataLoader(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, SecurityRepository securityRepository) {
+    public DataLoader(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, SecurityRepository securityRepository,
+                      OrderHandler orderHandler, RequestJournal requestJournal, Optional<SnapshotStore> snapshotStore) {
         this.brokerRepository = brokerRepository;
         this.shareholderRepository = shareholderRepository;
         this.securityRepository = securityRepository;
+        this.orderHandler = orderHandler;
+        this.requestJournal = requestJournal;
+        this.snapshotStore = snapshotStore;
     }
 
     @Value("classpath:persistence/broker.csv")
@@ -44,140 +57,226 @@ public class DataLoader {
     private Resource positionCsvResource;
     @Value("classpath:persistence/orderbook.csv")
     private Resource orderBookCsvResource;
+    @Value("${tinyme.persistence.parallel-load:false}")
+    private boolean parallelLoad;
 
     @PostConstruct
     public void loadAll() throws Exception {
-        loadBrokers();
-        loadShareholders();
-        loadSecurities();
-        loadPositions();
-        loadOrderBook();
+        long snapshotSequence = 0;
+        if (snapshotStore.isPresent() && snapshotStore.get().exists()) {
+            PersistenceEvent event = PersistenceEvent.start("snapshot load");
+            snapshotSequence = snapshotStore.get().load();
+            event.end(recordCount(), snapshotStore.get().size());
+        } else {
+            importCsv();
+        }
+        PersistenceEvent event = PersistenceEvent.start("journal replay");
+        long[] replayed = new long[1];
+        requestJournal.replay(Math.max(snapshotSequence, requestJournal.checkpointSequence()), request -> {
+            orderHandler.replay(request);
+            replayed[0]++;
+        });
+        event.end(replayed[0], 0);
     }
 
     @PreDestroy
     public void saveAll() throws Exception {
         System.out.print("Saving persistent data ...");
+        long journalSequence = requestJournal.lastSequence();
+        if (snapshotStore.isPresent()) {
+            PersistenceEvent event = PersistenceEvent.start("snapshot save");
+            snapshotStore.get().capture(journalSequence).write();
+            event.end(recordCount(), snapshotStore.get().size());
+        } else {
+            exportCsv();
+        }
+        requestJournal.checkpoint(journalSequence);
+        System.out.println(", done!");
+    }
+
+    private long recordCount() {
+        long records = 0;
+        for (Broker ignored : brokerRepository.allBrokers())
+            records++;
+        for (Shareholder shareholder : shareholderRepository.allShareholders())
+            records += 1 + shareholder.positionCount();
+        for (Security security : securityRepository.allSecurities())
+            records += 1 + security.getOrderBook().getSide(Side.BUY).getSize() + security.getOrderBook().getSide(Side.SELL).getSize();
+        return records;
+    }
+
+    public void importCsv() throws Exception {
+        if (parallelLoad)
+            importCsvInParallel();
+        else
+            importCsvSequentially();
+    }
+
+    public void exportCsv() throws Exception {
         saveBrokers();
         saveShareholdersAndPositions();
         saveSecuritiesAndOrderBooks();
-        System.out.println(", done!");
     }
 
-    private void loadBrokers() throws Exception {
+    private void importCsvSequentially() throws Exception {
         brokerRepository.clear();
-      try (Reader reader = new FileReader(brokerCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    brokerRepository.addBroker(Broker.builder()
-                            .brokerId(Long.parseLong(line[0]))
-                            .name(line[1])
-                            .credit(Long.parseLong(line[0]))
-                            .build());
-                }
-            }
-        }
+        readRows(brokerCsvResource).forEach(line -> brokerRepository.addBroker(parseBroker(line)));
         log.info("Brokers loaded");
+        shareholderRepository.clear();
+        readRows(shareholderCsvResource).forEach(line -> shareholderRepository.addShareholder(parseShareholder(line)));
+        log.info("Shareholders loaded");
+        securityRepository.clear();
+        readRows(securityCsvResource).forEach(line -> securityRepository.addSecurity(parseSecurity(line)));
+        log.info("Securities loaded");
+        readRows(positionCsvResource).forEach(this::loadPosition);
+        log.info("Positions loaded");
+        for (String[] line : readRows(orderBookCsvResource)) {
+            Order order = parseOrder(line);
+            order.getSecurity().getOrderBook().restore(order);
+        }
+        log.info("Order Book loaded");
     }
 
-    private void loadShareholders() throws Exception {
-        shareholderRepository.clear();
-        try (Reader reader = new FileReader(shareholderCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    shareholderRepository.addShareholder(Shareholder.builder()
-                            .shareholderId(Long.parseLong(line[0]))
-                            .name(line[1])
-                            .build());
+    private void importCsvInParallel() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            CompletableFuture<List<Broker>> brokers = CompletableFuture.supplyAsync(
+                    () -> readRowsUnchecked(brokerCsvResource).stream().map(this::parseBroker).toList(), pool);
+            CompletableFuture<List<Shareholder>> shareholders = CompletableFuture.supplyAsync(
+                    () -> readRowsUnchecked(shareholderCsvResource).stream().map(this::parseShareholder).toList(), pool);
+            CompletableFuture<List<Security>> securities = CompletableFuture.supplyAsync(
+                    () -> readRowsUnchecked(securityCsvResource).stream().map(this::parseSecurity).toList(), pool);
+            CompletableFuture<Map<String, List<String[]>>> positionsByIsin = CompletableFuture.supplyAsync(
+                    () -> groupByIsin(readRowsUnchecked(positionCsvResource)), pool);
+            CompletableFuture<Map<String, List<String[]>>> ordersByIsin = CompletableFuture.supplyAsync(
+                    () -> groupByIsin(readRowsUnchecked(orderBookCsvResource)), pool);
+
+            brokerRepository.clear();
+            join(brokers).forEach(brokerRepository::addBroker);
+            shareholderRepository.clear();
+            join(shareholders).forEach(shareholderRepository::addShareholder);
+            securityRepository.clear();
+            join(securities).forEach(securityRepository::addSecurity);
+            log.info("Brokers, shareholders and securities loaded");
+
+            Map<String, List<String[]>> positions = join(positionsByIsin);
+            Map<String, List<String[]>> orders = join(ordersByIsin);
+            Set<String> isins = new LinkedHashSet<>(positions.keySet());
+            isins.addAll(orders.keySet());
+            pool.submit(() -> isins.parallelStream().forEach(isin -> {
+                positions.getOrDefault(isin, List.of()).forEach(this::loadPosition);
+                for (String[] line : orders.getOrDefault(isin, List.of())) {
+                    Order order = parseOrder(line);
+                    order.getSecurity().getOrderBook().restore(order);
                 }
-            }
+            })).get();
+            log.info("Positions and Order Book loaded");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        } finally {
+            pool.shutdown();
         }
-        log.info("Shareholders loaded");
     }
 
-    private void loadSecurities() throws Exception {
-        securityRepository.clear();
-        try (Reader reader = new FileReader(securityCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    securityRepository.addSecurity(Security.builder()
-                            .isin(line[0])
-                            .tickSize(Integer.parseInt(line[1]))
-                            .lotSize(Integer.parseInt(line[2]))
-                            .build());
-                }
-            }
+    private static <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
         }
-        log.info("Securities loaded");
     }
 
-    private void loadPositions() throws Exception {
-        try (Reader reader = new FileReader(positionCsvResource.getFile())) {
+    private static Map<String, List<String[]>> groupByIsin(List<String[]> rows) {
+        return rows.stream().collect(Collectors.groupingBy(line -> line[1], LinkedHashMap::new, Collectors.toList()));
+    }
+
+    private static List<String[]> readRows(Resource resource) throws Exception {
+        PersistenceEvent event = PersistenceEvent.start("read " + resource.getFilename());
+        try (Reader reader = new FileReader(resource.getFile())) {
             try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    Shareholder shareholder = shareholderRepository.findShareholderById(Long.parseLong(line[0]));
-                    Security security = securityRepository.findSecurityByIsin(line[1]);
-                    shareholder.incPosition(security, Integer.parseInt(line[2]));
-                }
+                List<String[]> rows = csvReader.readAll();
+                event.end(rows.size(), resource.getFile().length());
+                return rows;
             }
         }
-        log.info("Positions loaded");
     }
 
-    private void loadOrderBook() throws Exception {
-        LinkedList<Order> orders = new LinkedList<>();
-        try (Reader reader = new FileReader(orderBookCsvResource.getFile())) {
-            try (CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
-                String[] line;
-                while ((line = csvReader.readNext()) != null) {
-                    Security security = securityRepository.findSecurityByIsin(line[1]);
-                    Broker broker = brokerRepository.findBrokerById(Long.parseLong(line[5]));
-                    Shareholder shareholder = shareholderRepository.findShareholderById(Long.parseLong(line[6]));
+    private static List<String[]> readRowsUnchecked(Resource resource) {
+        try {
+            return readRows(resource);
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private Broker parseBroker(String[] line) {
+//brokerId,name,credit
+//0        1    2
+        return Broker.builder()
+                .brokerId(Long.parseLong(line[0]))
+                .name(line[1])
+                .credit(Long.parseLong(line[2]))
+                .build();
+    }
+
+    private Shareholder parseShareholder(String[] line) {
+        return Shareholder.builder()
+                .shareholderId(Long.parseLong(line[0]))
+                .name(line[1])
+                .build();
+    }
+
+    private Security parseSecurity(String[] line) {
+        return Security.builder()
+                .isin(line[0])
+                .tickSize(Integer.parseInt(line[1]))
+                .lotSize(Integer.parseInt(line[2]))
+                .build();
+    }
+
+    private void loadPosition(String[] line) {
+        Shareholder shareholder = shareholderRepository.findShareholderById(Long.parseLong(line[0]));
+        Security security = securityRepository.findSecurityByIsin(line[1]);
+        shareholder.incPosition(security, Integer.parseInt(line[2]));
+    }
+
+    private Order parseOrder(String[] line) {
+        Security security = securityRepository.findSecurityByIsin(line[1]);
+        Broker broker = brokerRepository.findBrokerById(Long.parseLong(line[5]));
+        Shareholder shareholder = shareholderRepository.findShareholderById(Long.parseLong(line[6]));
 //orderId,isin,side,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity
 //0       1    2    3        4     5        6             7         8        9
-                    int peakSize = Integer.parseInt(line[8]);
-                    Order order;
-                    if (peakSize == 0) {
-                        order = new Order(
-                                Long.parseLong(line[0]),
-                                security,
-                                Side.parse(line[2]),
-                                Integer.parseInt(line[3]),
-                                Integer.parseInt(line[4]),
-                                broker,
-                                shareholder,
-                                LocalDateTime.parse(line[7]),
-                                OrderStatus.QUEUED);
-                    } else {
-                        order = new IcebergOrder(
-                                Long.parseLong(line[0]),
-                                security,
-                                Side.parse(line[2]),
-                                Integer.parseInt(line[3]),
-                                Integer.parseInt(line[4]),
-                                broker,
-                                shareholder,
-                                LocalDateTime.parse(line[7]),
-                                Integer.parseInt(line[8]),
-                                Integer.parseInt(line[9]),
-                                OrderStatus.QUEUED);
-                    }
-                    orders.addFirst(order);
-                }
-            }
-        }
-        Iterator<Order> it = orders.descendingIterator();
-        while (it.hasNext()) {
-            Order order = it.next();
-            order.getSecurity().getOrderBook().enqueue(order);
+        int peakSize = Integer.parseInt(line[8]);
+        if (peakSize == 0) {
+            return new Order(
+                    Long.parseLong(line[0]),
+                    security,
+                    Side.parse(line[2]),
+                    Integer.parseInt(line[3]),
+                    Integer.parseInt(line[4]),
+                    broker,
+                    shareholder,
+                    LocalDateTime.parse(line[7]),
+                    OrderStatus.QUEUED);
+        } else {
+            return new IcebergOrder(
+                    Long.parseLong(line[0]),
+                    security,
+                    Side.parse(line[2]),
+                    Integer.parseInt(line[3]),
+                    Integer.parseInt(line[4]),
+                    broker,
+                    shareholder,
+                    LocalDateTime.parse(line[7]),
+                    Integer.parseInt(line[8]),
+                    Integer.parseInt(line[9]),
+                    OrderStatus.QUEUED);
         }
-        log.info("Order Book loaded");
     }
 
     private void saveBrokers() throws Exception {
+        PersistenceEvent event = PersistenceEvent.start("write brokers");
+        long rows = 0;
         try (PrintWriter writer = new PrintWriter(new FileWriter(brokerCsvResource.getFile()))) {
             writer.println("brokerId,name,credit");
             for (Broker broker : brokerRepository.allBrokers()) {
@@ -186,12 +285,16 @@ public class DataLoader {
                         .add(broker.getName())
                         .add(String.valueOf(broker.getCredit()));
                 writer.println(joiner);
+                rows++;
             }
         }
+        event.end(rows, brokerCsvResource.getFile().length());
         log.info("Brokers saved");
     }
 
     private void saveShareholdersAndPositions() throws Exception {
+        PersistenceEvent event = PersistenceEvent.start("write shareholders and positions");
+        long rows = 0;
         try (PrintWriter shareholderWriter = new PrintWriter(new FileWriter(shareholderCsvResource.getFile()))) {
             shareholderWriter.println("shareholderId,name");
             try (PrintWriter positionWriter = new PrintWriter(new FileWriter(positionCsvResource.getFile()))) {
@@ -201,20 +304,25 @@ public class DataLoader {
                     joiner.add(String.valueOf(shareholder.getShareholderId()))
                             .add(shareholder.getName());
                     shareholderWriter.println(joiner);
-                    for (var entry : shareholder.getPositions().entrySet()) {
+                    rows++;
+                    shareholder.forEachPosition(securityRepository::findSecurityByIndex, (security, quantity) -> {
                         StringJoiner posJoiner = new StringJoiner(",");
                         posJoiner.add(String.valueOf(shareholder.getShareholderId()))
-                                .add(entry.getKey().getIsin())
-                                .add(String.valueOf(entry.getValue()));
+                                .add(security.getIsin())
+                                .add(String.valueOf(quantity));
                         positionWriter.println(posJoiner);
-                    }
+                    });
+                    rows += shareholder.positionCount();
                 }
             }
         }
+        event.end(rows, shareholderCsvResource.getFile().length() + positionCsvResource.getFile().length());
         log.info("Shareholders and Positions saved");
     }
 
     private void saveSecuritiesAndOrderBooks() throws Exception {
+        PersistenceEvent event = PersistenceEvent.start("write securities and order books");
+        long rows = 0;
         try (PrintWriter securityWriter = new PrintWriter(new FileWriter(securityCsvResource.getFile()))) {
             securityWriter.println("isin,tickSize,lotSize");
             try (PrintWriter orderBookWriter = new PrintWriter(new FileWriter(orderBookCsvResource.getFile()))) {
@@ -225,13 +333,19 @@ public class DataLoader {
                             .add(String.valueOf(security.getTickSize()))
                             .add(String.valueOf(security.getLotSize()));
                     securityWriter.println(joiner);
-                    for (Order order : security.getOrderBook().getBuyQueue())
+                    rows++;
+                    for (Order order : security.getOrderBook().getBuyQueue()) {
                         orderBookWriter.println(getCSVString(order));
-                    for (Order order : security.getOrderBook().getSellQueue())
+                        rows++;
+                    }
+                    for (Order order : security.getOrderBook().getSellQueue()) {
                         orderBookWriter.println(getCSVString(order));
+                        rows++;
+                    }
                 }
             }
         }
+        event.end(rows, securityCsvResource.getFile().length() + orderBookCsvResource.getFile().length());
         log.info("Securities and OrderBook saved");
     }
 
@@ -0,0 +1,260 @@
+package ir.ramtung.tinyme.repository;
+
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import com.opencsv.exceptions.CsvValidationException;
+import ir.ramtung.tinyme.domain.entity.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.logging.Logger;
+
+// Each save writes the changed partitions to files of a new generation and then atomically replaces
+// the MANIFEST that names the live file of every partition, so a save cut short leaves the previous
+// state intact. The broker file is rewritten only when some credit moved, and the order book and
+// positions of a security only when its book was modified since the last save.
+@Component
+@ConditionalOnProperty(name = "tinyme.persistence.format", havingValue = "partitioned")
+public class PartitionedSnapshotStore implements SnapshotStore {
+    private static final String MANIFEST = "MANIFEST";
+    private static final String GENERATION = "generation";
+    private static final String SEQUENCE = "sequence";
+    private static final String BROKERS = "brokers";
+    private static final String SHAREHOLDERS = "shareholders";
+    private static final String SECURITIES = "securities";
+    private static final String ORDER_BOOK = "orderbook-";
+    private static final String POSITIONS = "positions-";
+
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final BrokerRepository brokerRepository;
+    private final ShareholderRepository shareholderRepository;
+    private final SecurityRepository securityRepository;
+    private final Path directory;
+    private Map<String, String> liveFiles = new TreeMap<>();
+    private Map<Long, Long> savedCredits = new HashMap<>();
+    private Map<String, Long> savedBookVersions = new HashMap<>();
+    private int savedShareholderCount = -1;
+    private long generation;
+
+    public PartitionedSnapshotStore(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository, SecurityRepository securityRepository,
+                                    @Value("${tinyme.persistence.dir:data}") String directory) {
+        this.brokerRepository = brokerRepository;
+        this.shareholderRepository = shareholderRepository;
+        this.securityRepository = securityRepository;
+        this.directory = Path.of(directory);
+    }
+
+    @Override
+    public boolean exists() {
+        return Files.exists(directory.resolve(MANIFEST));
+    }
+
+    @Override
+    public synchronized long load() throws IOException {
+        Map<String, String> manifest = new TreeMap<>();
+        for (String line : Files.readAllLines(directory.resolve(MANIFEST))) {
+            int separator = line.indexOf('=');
+            manifest.put(line.substring(0, separator), line.substring(separator + 1));
+        }
+        generation = Long.parseLong(manifest.remove(GENERATION));
+        long sequence = Long.parseLong(manifest.remove(SEQUENCE));
+        liveFiles = manifest;
+
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        for (String[] line : rows(SECURITIES))
+            securityRepository.addSecurity(Security.builder()
+                    .isin(line[0])
+                    .tickSize(Integer.parseInt(line[1]))
+                    .lotSize(Integer.parseInt(line[2]))
+                    .build());
+        for (String[] line : rows(BROKERS))
+            brokerRepository.addBroker(Broker.builder()
+                    .brokerId(Long.parseLong(line[0]))
+                    .name(line[1])
+                    .credit(Long.parseLong(line[2]))
+                    .build());
+        for (String[] line : rows(SHAREHOLDERS))
+            shareholderRepository.addShareholder(Shareholder.builder()
+                    .shareholderId(Long.parseLong(line[0]))
+                    .name(line[1])
+                    .build());
+        for (Security security : securityRepository.allSecurities()) {
+            for (String[] line : rows(POSITIONS + security.getIsin()))
+                shareholderRepository.findShareholderById(Long.parseLong(line[0])).incPosition(security, Integer.parseInt(line[1]));
+            for (String[] line : rows(ORDER_BOOK + security.getIsin()))
+                security.getOrderBook().restore(parseOrder(security, line));
+        }
+
+        savedCredits = new HashMap<>();
+        for (Broker broker : brokerRepository.allBrokers())
+            savedCredits.put(broker.getBrokerId(), broker.getCredit());
+        savedBookVersions = new HashMap<>();
+        for (Security security : securityRepository.allSecurities())
+            savedBookVersions.put(security.getIsin(), security.getOrderBook().getModificationCount());
+        savedShareholderCount = count(shareholderRepository.allShareholders());
+        log.info("Loaded generation " + generation + " of " + directory);
+        return sequence;
+    }
+
+    private Order parseOrder(Security security, String[] line) {
+//orderId,side,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity
+//0       1    2        3     4        5             6         7        8
+        Broker broker = brokerRepository.findBrokerById(Long.parseLong(line[4]));
+        Shareholder shareholder = shareholderRepository.findShareholderById(Long.parseLong(line[5]));
+        int peakSize = Integer.parseInt(line[7]);
+        if (peakSize == 0)
+            return new Order(Long.parseLong(line[0]), security, Side.parse(line[1]), Integer.parseInt(line[2]), Integer.parseInt(line[3]),
+                    broker, shareholder, LocalDateTime.parse(line[6]), OrderStatus.QUEUED);
+        return new IcebergOrder(Long.parseLong(line[0]), security, Side.parse(line[1]), Integer.parseInt(line[2]), Integer.parseInt(line[3]),
+                broker, shareholder, LocalDateTime.parse(line[6]), peakSize, Integer.parseInt(line[8]), OrderStatus.QUEUED);
+    }
+
+    private List<String[]> rows(String partition) throws IOException {
+        String file = liveFiles.get(partition);
+        if (file == null)
+            return List.of();
+        List<String[]> rows = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(directory.resolve(file));
+             CSVReader csvReader = new CSVReaderBuilder(reader).withSkipLines(1).build()) {
+            String[] line;
+            while ((line = csvReader.readNext()) != null)
+                rows.add(line);
+        } catch (CsvValidationException ex) {
+            throw new IOException("Malformed partition " + file, ex);
+        }
+        return rows;
+    }
+
+    @Override
+    public synchronized long size() throws IOException {
+        long size = Files.size(directory.resolve(MANIFEST));
+        for (String file : liveFiles.values())
+            size += Files.size(directory.resolve(file));
+        return size;
+    }
+
+    @Override
+    public synchronized Capture capture(long journalSequence) {
+        Map<String, byte[]> partitions = new TreeMap<>();
+
+        Map<Long, Long> credits = new HashMap<>();
+        StringBuilder brokers = new StringBuilder("brokerId,name,credit\n");
+        boolean creditsMoved = false;
+        for (Broker broker : brokerRepository.allBrokers()) {
+            long credit = broker.getCredit();
+            credits.put(broker.getBrokerId(), credit);
+            creditsMoved |= !Objects.equals(savedCredits.get(broker.getBrokerId()), credit);
+            brokers.append(broker.getBrokerId()).append(',').append(broker.getName()).append(',').append(credit).append('\n');
+        }
+        if (creditsMoved || credits.size() != savedCredits.size())
+            partitions.put(BROKERS, bytes(brokers));
+
+        int shareholderCount = count(shareholderRepository.allShareholders());
+        if (shareholderCount != savedShareholderCount) {
+            StringBuilder shareholders = new StringBuilder("shareholderId,name\n");
+            for (Shareholder shareholder : shareholderRepository.allShareholders())
+                shareholders.append(shareholder.getShareholderId()).append(',').append(shareholder.getName()).append('\n');
+            partitions.put(SHAREHOLDERS, bytes(shareholders));
+        }
+
+        Map<String, Long> bookVersions = new HashMap<>();
+        Map<Security, StringBuilder> positions = new IdentityHashMap<>();
+        StringBuilder securities = new StringBuilder("isin,tickSize,lotSize\n");
+        for (Security security : securityRepository.allSecurities()) {
+            long version = security.getOrderBook().getModificationCount();
+            bookVersions.put(security.getIsin(), version);
+            securities.append(security.getIsin()).append(',').append(security.getTickSize()).append(',').append(security.getLotSize()).append('\n');
+            if (!Objects.equals(savedBookVersions.get(security.getIsin()), version)) {
+                partitions.put(ORDER_BOOK + security.getIsin(), orderBookCsv(security));
+                positions.put(security, new StringBuilder("shareholderId,positions\n"));
+            }
+        }
+        if (!bookVersions.keySet().equals(savedBookVersions.keySet()))
+            partitions.put(SECURITIES, bytes(securities));
+        if (!positions.isEmpty()) {
+            for (Shareholder shareholder : shareholderRepository.allShareholders()) {
+                shareholder.forEachPosition(securityRepository::findSecurityByIndex, (security, quantity) -> {
+                    StringBuilder rows = positions.get(security);
+                    if (rows != null)
+                        rows.append(shareholder.getShareholderId()).append(',').append(quantity).append('\n');
+                });
+            }
+            for (Map.Entry<Security, StringBuilder> rows : positions.entrySet())
+                partitions.put(POSITIONS + rows.getKey().getIsin(), bytes(rows.getValue()));
+        }
+        return () -> write(journalSequence, partitions, credits, bookVersions, shareholderCount);
+    }
+
+    private byte[] orderBookCsv(Security security) {
+        StringBuilder rows = new StringBuilder("orderId,side,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity\n");
+        for (Side side : Side.values()) {
+            for (PriceLevel level : security.getOrderBook().getSide(side).levels()) {
+                for (Order order : level) {
+                    rows.append(order.getOrderId()).append(',')
+                            .append(order.getSide()).append(',')
+                            .append(order.getTotalQuantity()).append(',')
+                            .append(order.getPrice()).append(',')
+                            .append(order.getBroker().getBrokerId()).append(',')
+                            .append(order.getShareholder().getShareholderId()).append(',')
+                            .append(order.getEntryTime()).append(',');
+                    if (order instanceof IcebergOrder icebergOrder)
+                        rows.append(icebergOrder.getPeakSize()).append(',').append(icebergOrder.getDisplayedQuantity());
+                    else
+                        rows.append("0,0");
+                    rows.append('\n');
+                }
+            }
+        }
+        return bytes(rows);
+    }
+
+    private synchronized void write(long journalSequence, Map<String, byte[]> partitions, Map<Long, Long> credits,
+                                    Map<String, Long> bookVersions, int shareholderCount) throws IOException {
+        long nextGeneration = generation + 1;
+        Map<String, String> files = new TreeMap<>(liveFiles);
+        for (Map.Entry<String, byte[]> partition : partitions.entrySet()) {
+            String file = partition.getKey() + "." + nextGeneration + ".csv";
+            AtomicFiles.write(directory.resolve(file), partition.getValue());
+            files.put(partition.getKey(), file);
+        }
+        StringBuilder manifest = new StringBuilder();
+        manifest.append(GENERATION).append('=').append(nextGeneration).append('\n');
+        manifest.append(SEQUENCE).append('=').append(journalSequence).append('\n');
+        for (Map.Entry<String, String> file : files.entrySet())
+            manifest.append(file.getKey()).append('=').append(file.getValue()).append('\n');
+        AtomicFiles.write(directory.resolve(MANIFEST), bytes(manifest));
+
+        for (String partition : partitions.keySet()) {
+            String superseded = liveFiles.get(partition);
+            if (superseded != null)
+                Files.deleteIfExists(directory.resolve(superseded));
+        }
+        liveFiles = files;
+        generation = nextGeneration;
+        savedCredits = credits;
+        savedBookVersions = bookVersions;
+        savedShareholderCount = shareholderCount;
+        log.info("Saved generation " + generation + " with " + partitions.size() + " changed partitions");
+    }
+
+    private static byte[] bytes(CharSequence content) {
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int count(Iterable<?> items) {
+        int count = 0;
+        for (Object ignored : items)
+            count++;
+        return count;
+    }
+}
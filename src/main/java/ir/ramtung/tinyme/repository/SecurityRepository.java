@@ -3,24 +3,54 @@ package ir.ramtung.tinyme.repository;
 import ir.ramtung.tinyme.domain.entity.Security;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 
 @Component
 public class SecurityRepository {
     private final HashMap<String, Security> securityByIsin = new HashMap<>();
+    private Security[] securityByIndex = new Security[16];
+    private int nextIndex;
+
     public Security findSecurityByIsin(String isin) {
         return securityByIsin.get(isin);
     }
 
+    public Security findSecurityByIndex(int index) {
+        return index >= 0 && index < securityByIndex.length ? securityByIndex[index] : null;
+    }
+
     public void addSecurity(Security security) {
+        Security previous = securityByIsin.get(security.getIsin());
+        if (previous == security)
+            return;
+        if (security.getIndex() == Security.UNREGISTERED)
+            security.register(previous != null ? previous.getIndex() : nextIndex);
+        int index = security.getIndex();
+        if (previous != null && previous.getIndex() != index)
+            throw new IllegalArgumentException("Security " + security.getIsin() + " has index " + index + " but replaces one with index " + previous.getIndex());
+        if (index >= securityByIndex.length)
+            securityByIndex = Arrays.copyOf(securityByIndex, Math.max(index + 1, securityByIndex.length * 2));
+        if (securityByIndex[index] != null && securityByIndex[index] != previous)
+            throw new IllegalArgumentException("Index " + index + " of security " + security.getIsin() + " is taken by " + securityByIndex[index].getIsin());
         securityByIsin.put(security.getIsin(), security);
+        securityByIndex[index] = security;
+        nextIndex = Math.max(nextIndex, index + 1);
     }
 
     public void clear() {
         securityByIsin.clear();
+        Arrays.fill(securityByIndex, 0, nextIndex, null);
+        nextIndex = 0;
     }
 
     Iterable<? extends Security> allSecurities() {
-        return securityByIsin.values();
+        List<Security> securities = new ArrayList<>(securityByIsin.size());
+        for (int index = 0; index < nextIndex; index++)
+            if (securityByIndex[index] != null)
+                securities.add(securityByIndex[index]);
+        return securities;
     }
 }
@@ -1,13 +1,12 @@
 package ir.ramtung.tinyme.repository;
 
 import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.util.DenseLongObjectMap;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
-
 @Component
 public class ShareholderRepository {
-    private final HashMap<Long, Shareholder> shareholderById = new HashMap<>();
+    private final DenseLongObjectMap<Shareholder> shareholderById = new DenseLongObjectMap<>();
     public Shareholder findShareholderById(long shareholderId) {
         return shareholderById.get(shareholderId);
     }
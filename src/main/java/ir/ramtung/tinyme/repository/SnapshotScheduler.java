@@ -0,0 +1,110 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.service.MatchingBarrier;
+import ir.ramtung.tinyme.journal.RequestJournal;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Matching is paused only while the state is encoded into memory; writing and syncing the
+// file, and trimming the journal behind it, happen on the snapshot thread while matching continues.
+@Component
+@Profile("!test")
+@ConditionalOnProperty(name = "tinyme.snapshot.enabled", havingValue = "true")
+public class SnapshotScheduler implements SmartLifecycle {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestJournal requestJournal;
+    private final MatchingBarrier matchingBarrier;
+    private final SnapshotStore snapshotStore;
+    private final long intervalNanos;
+    private final long everyRequests;
+    private Thread thread;
+    private volatile boolean running;
+    private long snapshotSequence;
+    private long snapshotTime;
+
+    public SnapshotScheduler(RequestJournal requestJournal, MatchingBarrier matchingBarrier, Optional<SnapshotStore> snapshotStore,
+                             @Value("${tinyme.snapshot.interval-seconds:60}") long intervalSeconds,
+                             @Value("${tinyme.snapshot.every-requests:0}") long everyRequests) {
+        if (snapshotStore.isEmpty())
+            throw new IllegalStateException("Periodic snapshots need tinyme.persistence.format=binary or partitioned");
+        this.requestJournal = requestJournal;
+        this.matchingBarrier = matchingBarrier;
+        this.snapshotStore = snapshotStore.get();
+        this.intervalNanos = TimeUnit.SECONDS.toNanos(intervalSeconds);
+        this.everyRequests = everyRequests;
+    }
+
+    public void takeSnapshot() throws InterruptedException, IOException {
+        long[] sequence = new long[1];
+        SnapshotStore.Capture[] capture = new SnapshotStore.Capture[1];
+        long pauseStart = System.nanoTime();
+        matchingBarrier.pauseAndRun(() -> {
+            sequence[0] = requestJournal.lastSequence();
+            capture[0] = snapshotStore.capture(sequence[0]);
+        });
+        long pause = System.nanoTime() - pauseStart;
+        capture[0].write();
+        requestJournal.checkpoint(sequence[0]);
+        snapshotSequence = sequence[0];
+        snapshotTime = System.nanoTime();
+        log.info("Snapshot at journal sequence " + sequence[0] + " written (matching paused "
+                + TimeUnit.NANOSECONDS.toMicros(pause) + "us)");
+    }
+
+    private boolean snapshotDue() {
+        long pending = requestJournal.lastSequence() - snapshotSequence;
+        if (everyRequests > 0 && pending >= everyRequests)
+            return true;
+        return intervalNanos > 0 && System.nanoTime() - snapshotTime >= intervalNanos;
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(100);
+                if (snapshotDue())
+                    takeSnapshot();
+            } catch (InterruptedException ex) {
+                return;
+            } catch (IOException | RuntimeException ex) {
+                log.log(Level.SEVERE, "Periodic snapshot failed", ex);
+                snapshotTime = System.nanoTime();
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        snapshotSequence = requestJournal.checkpointSequence();
+        snapshotTime = System.nanoTime();
+        running = true;
+        thread = new Thread(this::run, "snapshot-scheduler");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,17 @@
+package ir.ramtung.tinyme.repository;
+
+import java.io.IOException;
+
+public interface SnapshotStore {
+    boolean exists();
+
+    long load() throws IOException;
+
+    long size() throws IOException;
+
+    Capture capture(long journalSequence);
+
+    interface Capture {
+        void write() throws IOException;
+    }
+}
@@ -0,0 +1,123 @@
+package ir.ramtung.tinyme.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A map from long ids to values that keeps compact, non-negative ids in a plain array and
+ * falls back to a {@link LongObjectHashMap} for ids too large or too sparse to index directly.
+ * Lookups never box the key. Like the maps it replaces, it is safe for concurrent readers
+ * as long as no thread writes to it at the same time.
+ */
+public class DenseLongObjectMap<V> {
+    private static final int MIN_DENSE_CAPACITY = 64;
+    private static final int MAX_DENSE_CAPACITY = 1 << 24;
+
+    private Object[] dense = new Object[MIN_DENSE_CAPACITY];
+    private int denseSize;
+    private final LongObjectHashMap<V> sparse = new LongObjectHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key >= 0 && key < dense.length)
+            return (V) dense[(int) key];
+        return sparse.get(key);
+    }
+
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null)
+            throw new IllegalArgumentException("null values are not supported");
+        if (key >= dense.length && fitsDense(key))
+            growDense(key);
+        if (key >= 0 && key < dense.length) {
+            V previous = (V) dense[(int) key];
+            dense[(int) key] = value;
+            if (previous == null)
+                denseSize++;
+            return previous;
+        }
+        return sparse.put(key, value);
+    }
+
+    private boolean fitsDense(long key) {
+        return key < MAX_DENSE_CAPACITY && key < 4L * (size() + MIN_DENSE_CAPACITY);
+    }
+
+    private void growDense(long key) {
+        int capacity = dense.length;
+        while (capacity <= key)
+            capacity <<= 1;
+        dense = Arrays.copyOf(dense, capacity);
+        for (int id = 0; id < capacity; id++) {
+            V moved = sparse.remove(id);
+            if (moved != null) {
+                dense[id] = moved;
+                denseSize++;
+            }
+            if (sparse.isEmpty())
+                break;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key >= 0 && key < dense.length) {
+            V previous = (V) dense[(int) key];
+            dense[(int) key] = null;
+            if (previous != null)
+                denseSize--;
+            return previous;
+        }
+        return sparse.remove(key);
+    }
+
+    public int size() {
+        return denseSize + sparse.size();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        dense = new Object[MIN_DENSE_CAPACITY];
+        denseSize = 0;
+        sparse.clear();
+    }
+
+    public Iterable<V> values() {
+        return ValueIterator::new;
+    }
+
+    private class ValueIterator implements Iterator<V> {
+        private final Object[] array = dense;
+        private final Iterator<V> rest = sparse.values().iterator();
+        private int next = advance(0);
+
+        private int advance(int from) {
+            while (from < array.length && array[from] == null)
+                from++;
+            return from;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < array.length || rest.hasNext();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if (next < array.length) {
+                V value = (V) array[next];
+                next = advance(next + 1);
+                return value;
+            }
+            if (!rest.hasNext())
+                throw new NoSuchElementException();
+            return rest.next();
+        }
+    }
+}
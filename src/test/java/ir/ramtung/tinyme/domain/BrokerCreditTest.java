@@ -2,6 +2,8 @@ package ir.ramtung.tinyme.domain;
 
 import ir.ramtung.tinyme.domain.entity.*;
 import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.repository.SecurityRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,6 +12,7 @@ import org.springframework.test.annotation.DirtiesContext;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -28,6 +31,7 @@ public class BrokerCreditTest {
     @BeforeEach
     void setupOrderBook() {
         security = Security.builder().build();
+        new SecurityRepository().addSecurity(security);
         initialBroker1 = Broker.builder().credit(100_000_000L).build();
         initialBroker2 = Broker.builder().credit(100_000_000L).build();
         shareholder = Shareholder.builder().build();
@@ -330,4 +334,74 @@ public class BrokerCreditTest {
         assertThat(orderBook.getSellQueue().get(0)).isEqualTo(order);
         assertThat(orderBook.getBuyQueue()).containsExactly();
     }
+
+    @Test
+    void sell_queue_is_untouched_when_buyer_runs_out_of_credit_midway() {
+        Broker broker = Broker.builder().credit(10_100_000L).build();
+        Order order = new Order(11, security, Side.BUY, 1000, 16_000, broker, shareholder);
+        MatchResult result = matcher.execute(order);
+        assertThat(result.outcome()).isEqualTo(MatchingOutcome.NOT_ENOUGH_CREDIT);
+        assertThat(broker.getCredit()).isEqualTo(10_100_000L);
+        assertThat(initialBroker1.getCredit()).isEqualTo(100_000_000L);
+        assertThat(initialBroker2.getCredit()).isEqualTo(100_000_000L);
+        assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 10));
+        assertThat(orders.get(5).getQuantity()).isEqualTo(350);
+        assertThat(orders.get(6).getQuantity()).isEqualTo(285);
+        assertThat(orders.get(7).getQuantity()).isEqualTo(800);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1840);
+    }
+
+    @Test
+    void buy_order_sweeping_a_replenishing_iceberg_is_checked_against_its_total_cost() {
+        Security aSecurity = Security.builder().build();
+        new SecurityRepository().addSecurity(aSecurity);
+        aSecurity.getOrderBook().enqueue(new IcebergOrder(1, aSecurity, Side.SELL, 450, 15450, initialBroker1, shareholder, 200));
+        aSecurity.getOrderBook().enqueue(new Order(2, aSecurity, Side.SELL, 70, 15450, initialBroker1, shareholder));
+        aSecurity.getOrderBook().enqueue(new Order(3, aSecurity, Side.SELL, 100, 15500, initialBroker1, shareholder));
+        Broker poorBroker = Broker.builder().credit(9_273_999L).build();
+        Broker richBroker = Broker.builder().credit(9_274_000L).build();
+
+        MatchResult rejected = matcher.execute(new Order(11, aSecurity, Side.BUY, 600, 15500, poorBroker, shareholder));
+        assertThat(rejected.outcome()).isEqualTo(MatchingOutcome.NOT_ENOUGH_CREDIT);
+        assertThat(poorBroker.getCredit()).isEqualTo(9_273_999L);
+        assertThat(aSecurity.getOrderBook().getSellQueue()).extracting(Order::getOrderId).containsExactly(1L, 2L, 3L);
+
+        MatchResult executed = matcher.execute(new Order(12, aSecurity, Side.BUY, 600, 15500, richBroker, shareholder));
+        assertThat(executed.outcome()).isEqualTo(MatchingOutcome.EXECUTED);
+        assertThat(executed.trades()).hasSize(5);
+        assertThat(richBroker.getCredit()).isEqualTo(0L);
+    }
+
+    @Test
+    void buy_orders_reserve_commit_and_release_credit() throws Exception {
+        Broker broker = Broker.builder().credit(100_000_000L).build();
+        matcher.execute(new Order(11, security, Side.BUY, 400, 15_800, broker, shareholder));
+        assertThat(broker.getTradedCredit()).isEqualTo(5_530_000L);
+        assertThat(broker.getReservedCredit()).isEqualTo(790_000L);
+        assertThat(broker.getCredit()).isEqualTo(93_680_000L);
+
+        security.deleteOrder(new DeleteOrderRq(1, security.getIsin(), Side.BUY, 11));
+        assertThat(broker.getReservedCredit()).isZero();
+        assertThat(broker.getCredit()).isEqualTo(94_470_000L);
+    }
+
+    @Test
+    void concurrent_reservations_never_overdraw_the_available_credit() throws Exception {
+        Broker broker = Broker.builder().credit(1_000_000L).build();
+        AtomicInteger accepted = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 5_000; j++)
+                    if (broker.reserveCredit(100, 100))
+                        accepted.incrementAndGet();
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        assertThat(accepted.get()).isEqualTo(10_000);
+        assertThat(broker.getCredit()).isZero();
+        assertThat(broker.getReservedCredit()).isEqualTo(1_000_000L);
+    }
 }
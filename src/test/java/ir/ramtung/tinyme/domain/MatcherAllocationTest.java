@@ -0,0 +1,119 @@
+package ir.ramtung.tinyme.domain;
+
+import com.sun.management.ThreadMXBean;
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class MatcherAllocationTest {
+    private static final int WARMUP = 20_000;
+    private static final int MEASURED = 20_000;
+    private static final ThreadMXBean THREADS = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Matcher matcher;
+    private Broker buyer;
+    private Broker seller;
+    private Shareholder shareholder;
+
+    @BeforeEach
+    void setup() {
+        assumeTrue(THREADS.isThreadAllocatedMemorySupported());
+        THREADS.setThreadAllocatedMemoryEnabled(true);
+        matcher = new Matcher();
+        buyer = Broker.builder().brokerId(1).credit(Long.MAX_VALUE / 2).build();
+        seller = Broker.builder().brokerId(2).credit(0).build();
+        shareholder = Shareholder.builder().shareholderId(1).build();
+    }
+
+    private Security securityWithPosition() {
+        Security security = Security.builder().isin("ABC").build();
+        new SecurityRepository().addSecurity(security);
+        shareholder.incPosition(security, Integer.MAX_VALUE / 2);
+        return security;
+    }
+
+    private Order[] buyOrders(Security security, int count, int quantity, int price) {
+        Order[] orders = new Order[count];
+        for (int i = 0; i < count; i++)
+            orders[i] = new Order(1_000_000 + i, security, Side.BUY, quantity, price, buyer, shareholder);
+        return orders;
+    }
+
+    private long bytesPerMatch(Order[] incoming) {
+        for (int i = 0; i < WARMUP; i++)
+            matcher.match(incoming[i]);
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = WARMUP; i < WARMUP + MEASURED; i++)
+            matcher.match(incoming[i]);
+        return (THREADS.getCurrentThreadAllocatedBytes() - before) / MEASURED;
+    }
+
+    @Test
+    void fully_filling_orders_at_a_deep_level_does_not_allocate() {
+        Security security = securityWithPosition();
+        for (int i = 0; i < WARMUP + MEASURED + 1; i++)
+            security.getOrderBook().enqueue(new Order(i + 1, security, Side.SELL, 10, 15_000, seller, shareholder));
+        Order[] incoming = buyOrders(security, WARMUP + MEASURED, 10, 15_000);
+
+        assertThat(bytesPerMatch(incoming)).isZero();
+    }
+
+    @Test
+    void sweeping_across_price_levels_does_not_allocate() {
+        Security security = securityWithPosition();
+        for (int i = 0; i < 2 * (WARMUP + MEASURED) + 1; i++)
+            security.getOrderBook().enqueue(new Order(i + 1, security, Side.SELL, 5, 10_000 + i, seller, shareholder));
+        Order[] incoming = buyOrders(security, WARMUP + MEASURED, 10, Integer.MAX_VALUE / 2);
+
+        assertThat(bytesPerMatch(incoming)).isZero();
+    }
+
+    @Test
+    void partially_filling_a_resting_order_does_not_allocate() {
+        Security security = securityWithPosition();
+        security.getOrderBook().enqueue(new Order(1, security, Side.BUY, Integer.MAX_VALUE / 2, 15_000, buyer, shareholder));
+        Order[] incoming = new Order[WARMUP + MEASURED];
+        for (int i = 0; i < incoming.length; i++)
+            incoming[i] = new Order(1_000_000 + i, security, Side.SELL, 10, 15_000, seller, shareholder);
+
+        assertThat(bytesPerMatch(incoming)).isZero();
+    }
+
+    @Test
+    void executing_and_settling_fully_filled_orders_does_not_allocate() {
+        Security security = securityWithPosition();
+        for (int i = 0; i < WARMUP + MEASURED + 1; i++)
+            security.getOrderBook().enqueue(new Order(i + 1, security, Side.SELL, 10, 15_000, seller, shareholder));
+        Order[] incoming = buyOrders(security, WARMUP + MEASURED, 10, 15_000);
+
+        for (int i = 0; i < WARMUP; i++)
+            matcher.execute(incoming[i]);
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = WARMUP; i < WARMUP + MEASURED; i++)
+            matcher.execute(incoming[i]);
+        assertThat((THREADS.getCurrentThreadAllocatedBytes() - before) / MEASURED).isZero();
+        assertThat(shareholder.getPosition(security)).isEqualTo(Integer.MAX_VALUE / 2);
+    }
+
+    @Test
+    void the_pooled_result_of_a_match_stays_valid_until_the_next_match() {
+        Security security = securityWithPosition();
+        Order resting = new Order(1, security, Side.SELL, 30, 15_000, seller, shareholder);
+        security.getOrderBook().enqueue(resting);
+        Order first = new Order(2, security, Side.BUY, 10, 15_000, buyer, shareholder);
+        Order second = new Order(3, security, Side.BUY, 5, 15_000, buyer, shareholder);
+
+        MatchResult result = matcher.match(first);
+        assertThat(result.trades()).containsExactly(new Trade(security, 15_000, 10, first, resting));
+
+        matcher.match(second);
+        assertThat(result.trades()).containsExactly(new Trade(security, 15_000, 5, second, resting));
+    }
+}
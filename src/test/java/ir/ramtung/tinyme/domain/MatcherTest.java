@@ -3,6 +3,7 @@ package ir.ramtung.tinyme.domain;
 import ir.ramtung.tinyme.config.MockedJMSTestConfig;
 import ir.ramtung.tinyme.domain.entity.*;
 import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.repository.SecurityRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,6 +32,7 @@ public class MatcherTest {
     @BeforeEach
     void setupOrderBook() {
         security = Security.builder().build();
+        new SecurityRepository().addSecurity(security);
         broker = Broker.builder().credit(100_000_000L).build();
         shareholder = Shareholder.builder().build();
         shareholder.incPosition(security, 100_000);
@@ -109,6 +111,7 @@ public class MatcherTest {
     @Test
     void iceberg_order_in_queue_matched_completely_after_three_rounds() {
         security = Security.builder().build();
+        new SecurityRepository().addSecurity(security);
         broker = Broker.builder().build();
         orderBook = security.getOrderBook();
         orders = Arrays.asList(
@@ -1,6 +1,8 @@
 package ir.ramtung.tinyme.domain;
 
 import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.SecurityRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -15,6 +17,7 @@ class OrderBookTest {
     @BeforeEach
     void setupOrderBook() {
         security = Security.builder().build();
+        new SecurityRepository().addSecurity(security);
         Broker broker = Broker.builder().build();
         Shareholder shareholder = Shareholder.builder().build();
         shareholder.incPosition(security, 100_000);
@@ -76,4 +79,89 @@ class OrderBookTest {
         orderBook.removeByOrderId(Side.SELL, 10);
         assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 9));
     }
-}
\ No newline at end of file
+
+    @Test
+    void enqueues_orders_in_price_time_priority() {
+        OrderBook orderBook = security.getOrderBook();
+        assertThat(orderBook.getBuyQueue()).isEqualTo(orders.subList(0, 5));
+        assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 10));
+    }
+
+    @Test
+    void new_order_at_existing_price_queues_after_the_same_price_orders() {
+        OrderBook orderBook = security.getOrderBook();
+        Order order = new Order(11, security, Side.BUY, 100, 15450, orders.get(0).getBroker(), orders.get(0).getShareholder());
+        orderBook.enqueue(order);
+        assertThat(orderBook.getBuyQueue().get(4)).isEqualTo(order);
+        assertThat(orderBook.getSide(Side.BUY).levelCount()).isEqualTo(4);
+    }
+
+    @Test
+    void removing_the_last_order_of_the_best_level_advances_to_the_next_level() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.getSide(Side.SELL).first()).isEqualTo(orders.get(6));
+        orderBook.removeByOrderId(Side.SELL, 7);
+        orderBook.removeByOrderId(Side.SELL, 8);
+        assertThat(orderBook.getSide(Side.SELL).first()).isEqualTo(orders.get(8));
+        assertThat(orderBook.getSide(Side.SELL).levelCount()).isEqualTo(1);
+    }
+
+    @Test
+    void put_back_order_goes_to_the_front_of_its_level() {
+        OrderBook orderBook = security.getOrderBook();
+        Order order = orders.get(7);
+        orderBook.removeByOrderId(Side.SELL, 8);
+        orderBook.putBack(order);
+        assertThat(orderBook.getSellQueue().get(1)).isEqualTo(order);
+        assertThat(orderBook.getSellQueue().get(2)).isEqualTo(orders.get(6));
+    }
+
+    @Test
+    void removes_an_order_whose_price_changed_while_queued() {
+        OrderBook orderBook = security.getOrderBook();
+        Order order = orders.get(2);
+        order.updateFromRequest(EnterOrderRq.createUpdateOrderRq(1, security.getIsin(), 3, null, Side.BUY, 445, 15600, 0, 0, 0));
+        assertThat(orderBook.removeByOrderId(Side.BUY, 3)).isTrue();
+        assertThat(orderBook.findByOrderId(Side.BUY, 3)).isNull();
+        assertThat(orderBook.getBuyQueue()).containsExactly(orders.get(0), orders.get(1), orders.get(3), orders.get(4));
+    }
+
+    @Test
+    void keeps_track_of_resting_sell_quantity_of_each_shareholder() {
+        OrderBook orderBook = security.getOrderBook();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1840);
+
+        orderBook.decreaseQuantity(orders.get(5), 50);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1790);
+
+        orderBook.removeByOrderId(Side.SELL, 8);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(990);
+
+        orderBook.updateQueuedOrder(orders.get(8), EnterOrderRq.createUpdateOrderRq(1, security.getIsin(), 9, null, Side.SELL, 100, 15820, 0, 0, 0));
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(750);
+
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(450);
+    }
+
+    @Test
+    void resting_sell_quantity_counts_the_hidden_part_of_iceberg_orders() {
+        OrderBook orderBook = security.getOrderBook();
+        Shareholder other = Shareholder.builder().shareholderId(2).build();
+        orderBook.enqueue(new IcebergOrder(11, security, Side.SELL, 1000, 15900, orders.get(0).getBroker(), other, 100));
+        assertThat(orderBook.totalSellQuantityByShareholder(other)).isEqualTo(1000);
+    }
+
+    @Test
+    void order_at_a_new_worst_price_queues_behind_after_the_worst_level_empties() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeByOrderId(Side.BUY, 5);
+        Order order = new Order(11, security, Side.BUY, 100, 15300, orders.get(0).getBroker(), orders.get(0).getShareholder());
+        orderBook.enqueue(order);
+        Order sameAsWorst = new Order(12, security, Side.BUY, 100, 15450, orders.get(0).getBroker(), orders.get(0).getShareholder());
+        orderBook.enqueue(sameAsWorst);
+        assertThat(orderBook.getBuyQueue()).containsExactly(orders.get(0), orders.get(1), orders.get(2), orders.get(3), sameAsWorst, order);
+    }
+}
@@ -4,6 +4,7 @@ import ir.ramtung.tinyme.config.MockedJMSTestConfig;
 import ir.ramtung.tinyme.domain.entity.*;
 import ir.ramtung.tinyme.domain.service.Matcher;
 import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.journal.DisabledRequestJournal;
 import ir.ramtung.tinyme.messaging.EventPublisher;
 import ir.ramtung.tinyme.messaging.Message;
 import ir.ramtung.tinyme.messaging.TradeDTO;
@@ -13,6 +14,7 @@ import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
 import ir.ramtung.tinyme.messaging.event.OrderUpdatedEvent;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.metrics.RequestMetrics;
 import ir.ramtung.tinyme.repository.BrokerRepository;
 import ir.ramtung.tinyme.repository.SecurityRepository;
 import ir.ramtung.tinyme.repository.ShareholderRepository;
@@ -125,7 +127,7 @@ public class OrderHandlerTest {
                 matchingBuyOrder, incomingSellOrder);
 
         EventPublisher mockEventPublisher = mock(EventPublisher.class, withSettings().verboseLogging());
-        OrderHandler myOrderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository, mockEventPublisher, new Matcher());
+        OrderHandler myOrderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository, mockEventPublisher, new Matcher(), new DisabledRequestJournal(), RequestMetrics.disabled());
         myOrderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1,
                 incomingSellOrder.getSecurity().getIsin(),
                 incomingSellOrder.getOrderId(),
@@ -173,6 +175,17 @@ public class OrderHandlerTest {
         );
     }
 
+    @Test
+    void rejections_with_the_same_errors_share_one_reason_list() {
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "XXX", 1, LocalDateTime.now(), Side.SELL, 10, 100, 1, shareholder.getShareholderId(), 0));
+        orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(2, "YYY", 2, LocalDateTime.now(), Side.BUY, 20, 200, 1, shareholder.getShareholderId(), 0));
+        ArgumentCaptor<OrderRejectedEvent> orderRejectedCaptor = ArgumentCaptor.forClass(OrderRejectedEvent.class);
+        verify(eventPublisher, times(2)).publish(orderRejectedCaptor.capture());
+        List<OrderRejectedEvent> outputEvents = orderRejectedCaptor.getAllValues();
+        assertThat(outputEvents.get(0).getErrors()).containsExactly(Message.UNKNOWN_SECURITY_ISIN);
+        assertThat(outputEvents.get(1).getErrors()).isSameAs(outputEvents.get(0).getErrors());
+    }
+
     @Test
     void update_order_causing_no_trades() {
         Order queuedOrder = new Order(200, security, Side.SELL, 500, 15450, broker1, shareholder);
@@ -219,6 +232,30 @@ public class OrderHandlerTest {
         );
     }
 
+    @Test
+    void entities_are_looked_up_once_per_request() {
+        SecurityRepository securities = spy(securityRepository);
+        BrokerRepository brokers = spy(brokerRepository);
+        ShareholderRepository shareholders = spy(shareholderRepository);
+        OrderHandler myOrderHandler = new OrderHandler(securities, brokers, shareholders, mock(EventPublisher.class), new Matcher(), new DisabledRequestJournal(), RequestMetrics.disabled());
+
+        myOrderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 300, 15450, 2, shareholder.getShareholderId(), 0));
+        myOrderHandler.handleDeleteOrder(new DeleteOrderRq(2, "ABC", Side.SELL, 200));
+
+        verify(securities, times(2)).findSecurityByIsin("ABC");
+        verify(brokers, times(1)).findBrokerById(2);
+        verify(shareholders, times(1)).findShareholderById(shareholder.getShareholderId());
+    }
+
+    @Test
+    void requests_that_fail_unexpectedly_are_rejected() {
+        orderHandler.rejectFailedRequest(EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 300, 15450, 2, 0, 0));
+        orderHandler.rejectFailedRequest(new DeleteOrderRq(2, "ABC", Side.SELL, 100));
+
+        verify(eventPublisher).publish(new OrderRejectedEvent(1, 200, List.of(Message.REQUEST_PROCESSING_FAILED)));
+        verify(eventPublisher).publish(new OrderRejectedEvent(2, 100, List.of(Message.REQUEST_PROCESSING_FAILED)));
+    }
+
     @Test
     void invalid_delete_with_order_id_not_found() {
         Broker buyBroker = Broker.builder().credit(1_000_000).build();
@@ -249,7 +286,7 @@ public class OrderHandlerTest {
         );
         orders.forEach(order -> security.getOrderBook().enqueue(order));
         shareholder.decPosition(security, 99_500);
-        broker3.increaseCreditBy(100_000_000);
+        broker3.receiveCredit(100_000_000);
 
         orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.SELL, 400, 590, broker1.getBrokerId(), shareholder.getShareholderId(), 0));
 
@@ -267,7 +304,7 @@ public class OrderHandlerTest {
         );
         orders.forEach(order -> security.getOrderBook().enqueue(order));
         shareholder.decPosition(security, 99_500);
-        broker3.increaseCreditBy(100_000_000);
+        broker3.receiveCredit(100_000_000);
 
         orderHandler.handleEnterOrder(EnterOrderRq.createUpdateOrderRq(1, "ABC", 6, LocalDateTime.now(), Side.SELL, 450, 580, broker1.getBrokerId(), shareholder.getShareholderId(), 0));
 
@@ -288,7 +325,7 @@ public class OrderHandlerTest {
         );
         orders.forEach(order -> security.getOrderBook().enqueue(order));
         shareholder.decPosition(security, 99_500);
-        broker3.increaseCreditBy(100_000_000);
+        broker3.receiveCredit(100_000_000);
 
         orderHandler.handleEnterOrder(EnterOrderRq.createUpdateOrderRq(1, "ABC", 6, LocalDateTime.now(), Side.SELL, 250, 570, broker1.getBrokerId(), shareholder.getShareholderId(), 0));
 
@@ -311,7 +348,7 @@ public class OrderHandlerTest {
         );
         orders.forEach(order -> security.getOrderBook().enqueue(order));
         shareholder.decPosition(security, 99_500);
-        broker3.increaseCreditBy(100_000_000);
+        broker3.receiveCredit(100_000_000);
 
         orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 200, LocalDateTime.now(), Side.BUY, 500, 570, broker3.getBrokerId(), shareholder.getShareholderId(), 0));
 
@@ -334,7 +371,7 @@ public class OrderHandlerTest {
         );
         orders.forEach(order -> security.getOrderBook().enqueue(order));
         shareholder.decPosition(security, 99_500);
-        broker3.increaseCreditBy(100_000_000);
+        broker3.receiveCredit(100_000_000);
 
         orderHandler.handleEnterOrder(EnterOrderRq.createNewOrderRq(1, "ABC", 3, LocalDateTime.now(), Side.BUY, 500, 545, broker3.getBrokerId(), shareholder1.getShareholderId(), 0));
 
@@ -6,6 +6,7 @@ import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
 import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
 import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
 import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.repository.SecurityRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -30,6 +31,7 @@ class SecurityTest {
     @BeforeEach
     void setupOrderBook() {
         security = Security.builder().build();
+        new SecurityRepository().addSecurity(security);
         broker = Broker.builder().brokerId(0).credit(1_000_000L).build();
         shareholder = Shareholder.builder().shareholderId(0).build();
         shareholder.incPosition(security, 100_000);
@@ -104,6 +106,7 @@ class SecurityTest {
     @Test
     void increasing_iceberg_peak_size_changes_priority() {
         security = Security.builder().build();
+        new SecurityRepository().addSecurity(security);
         broker = Broker.builder().credit(1_000_000L).build();
         orders = Arrays.asList(
                 new Order(1, security, Side.BUY, 304, 15700, broker, shareholder),
@@ -122,6 +125,7 @@ class SecurityTest {
     @Test
     void decreasing_iceberg_quantity_to_amount_larger_than_peak_size_does_not_changes_priority() {
         security = Security.builder().build();
+        new SecurityRepository().addSecurity(security);
         broker = Broker.builder().build();
         orders = Arrays.asList(
                 new Order(1, security, Side.BUY, 304, 15700, broker, shareholder),
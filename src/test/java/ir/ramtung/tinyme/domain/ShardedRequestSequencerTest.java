@@ -0,0 +1,236 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.ShardedRequestSequencer;
+import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+class ShardedRequestSequencerTest {
+    private ShardedRequestSequencer sequencer;
+
+    @BeforeEach
+    void setup() {
+        sequencer = new ShardedRequestSequencer(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sequencer.stop();
+    }
+
+    @Test
+    void requests_of_a_security_run_in_order_on_a_single_thread() throws InterruptedException {
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        ConcurrentHashMap<String, Boolean> threads = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(1000);
+        for (int i = 0; i < 1000; i++) {
+            int requestNo = i;
+            sequencer.submit("ABC", () -> {
+                executed.add(requestNo);
+                threads.put(Thread.currentThread().getName(), true);
+                done.countDown();
+            });
+        }
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executed).isSorted().hasSize(1000);
+        assertThat(threads).hasSize(1);
+    }
+
+    @Test
+    void submitting_to_a_full_shard_blocks_until_it_drains() throws InterruptedException {
+        sequencer.stop();
+        sequencer = new ShardedRequestSequencer(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        sequencer.submit("ABC", () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        CountDownLatch ran = new CountDownLatch(2);
+        sequencer.submit("ABC", ran::countDown);
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread listener = new Thread(() -> {
+            sequencer.submit("ABC", ran::countDown);
+            submitted.countDown();
+        });
+        listener.start();
+
+        assertThat(submitted.await(200, TimeUnit.MILLISECONDS)).isFalse();
+        release.countDown();
+        assertThat(submitted.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void a_failing_request_is_reported_and_the_shard_keeps_going() throws InterruptedException {
+        CountDownLatch failed = new CountDownLatch(1);
+        CountDownLatch next = new CountDownLatch(1);
+        sequencer.submit("ABC", () -> {
+            throw new IllegalStateException("broken");
+        }, failed::countDown);
+        sequencer.submit("ABC", next::countDown);
+
+        assertThat(failed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(next.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void a_rejected_pause_releases_the_shards_already_parked() throws InterruptedException {
+        sequencer.stop();
+        sequencer = new ShardedRequestSequencer(2, 1);
+        String first = "SEC1";
+        String second = "SEC2";
+        for (int i = 3; sequencer.shardOf(first) != 0 || sequencer.shardOf(second) != 1; i++) {
+            if (sequencer.shardOf(first) != 0)
+                first = "SEC" + i;
+            else
+                second = "SEC" + i;
+        }
+        CountDownLatch release = new CountDownLatch(1);
+        sequencer.submit(second, () -> {
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        sequencer.submit(second, () -> {});
+
+        Thread.currentThread().interrupt();
+        assertThatExceptionOfType(RejectedExecutionException.class).isThrownBy(() -> sequencer.pauseAndRun(() -> {}));
+        assertThat(Thread.interrupted()).isTrue();
+        release.countDown();
+
+        CountDownLatch ran = new CountDownLatch(1);
+        sequencer.submit(first, ran::countDown);
+        assertThat(ran.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void securities_are_spread_over_shards() {
+        assertThat(sequencer.shardCount()).isEqualTo(4);
+        assertThat(sequencer.shardOf("ABC")).isEqualTo(sequencer.shardOf("ABC"));
+        assertThat(List.of("SEC1", "SEC2", "SEC3", "SEC4", "SEC5", "SEC6", "SEC7", "SEC8").stream()
+                .map(sequencer::shardOf).distinct().count()).isGreaterThan(1);
+    }
+
+    @Test
+    void shards_sharing_a_broker_never_spend_more_than_its_credit() throws InterruptedException {
+        Matcher matcher = new Matcher();
+        Broker buyer = Broker.builder().brokerId(1).credit(1_000_000L).build();
+        Broker seller = Broker.builder().brokerId(2).credit(0).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        List<String> isins = List.of("SEC1", "SEC2", "SEC3", "SEC4", "SEC5", "SEC6", "SEC7", "SEC8");
+        List<Security> securities = new ArrayList<>();
+        SecurityRepository securityRepository = new SecurityRepository();
+        for (String isin : isins) {
+            Security security = Security.builder().isin(isin).build();
+            securityRepository.addSecurity(security);
+            shareholder.incPosition(security, 1_000);
+            security.getOrderBook().enqueue(new Order(1, security, Side.SELL, 1_000, 1_000, seller, shareholder));
+            securities.add(security);
+        }
+
+        ConcurrentHashMap<String, MatchingOutcome> outcomes = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(securities.size());
+        for (Security security : securities) {
+            sequencer.submit(security.getIsin(), () -> {
+                outcomes.put(security.getIsin(), matcher.execute(new Order(2, security, Side.BUY, 600, 1_000, buyer, shareholder)).outcome());
+                done.countDown();
+            });
+        }
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+
+        long executed = outcomes.values().stream().filter(outcome -> outcome == MatchingOutcome.EXECUTED).count();
+        assertThat(executed).isEqualTo(1);
+        assertThat(buyer.getCredit()).isEqualTo(400_000L);
+        assertThat(seller.getCredit()).isEqualTo(600_000L);
+    }
+
+    @Test
+    void updating_buy_orders_never_hands_credit_to_another_shard() throws InterruptedException {
+        Matcher matcher = new Matcher();
+        Broker buyer = Broker.builder().brokerId(1).credit(1_000_000L).build();
+        Broker seller = Broker.builder().brokerId(2).credit(0).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        Security updated = Security.builder().isin("SEC1").build();
+        Security spent = Security.builder().isin("SEC2").build();
+        for (int i = 3; sequencer.shardOf(spent.getIsin()) == sequencer.shardOf(updated.getIsin()); i++)
+            spent = Security.builder().isin("SEC" + i).build();
+        new SecurityRepository().addSecurity(spent);
+        shareholder.incPosition(spent, 5_000);
+        spent.getOrderBook().enqueue(new Order(1, spent, Side.SELL, 5_000, 1_000, seller, shareholder));
+        Order resting = new Order(1, updated, Side.BUY, 500, 1_000, buyer, shareholder);
+        assertThat(matcher.execute(resting).outcome()).isEqualTo(MatchingOutcome.EXECUTED);
+
+        Security spentSecurity = spent;
+        CountDownLatch done = new CountDownLatch(10_000);
+        for (int i = 0; i < 5_000; i++) {
+            EnterOrderRq updateOrderRq = EnterOrderRq.createUpdateOrderRq(i, updated.getIsin(), 1, LocalDateTime.now(),
+                    Side.BUY, 500, i % 2 == 0 ? 999 : 1_000, 1, 1, 0);
+            sequencer.submit(updated.getIsin(), () -> {
+                try {
+                    updated.updateOrder(updateOrderRq, matcher);
+                } catch (InvalidRequestException ignored) {
+                }
+                done.countDown();
+            });
+            int orderId = 2 + i;
+            sequencer.submit(spentSecurity.getIsin(), () -> {
+                matcher.execute(new Order(orderId, spentSecurity, Side.BUY, 1, 1_000, buyer, shareholder));
+                done.countDown();
+            });
+        }
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Order stillResting = updated.getOrderBook().findByOrderId(Side.BUY, 1);
+        assertThat(buyer.getCredit()).isNotNegative();
+        assertThat(buyer.getReservedCredit()).isEqualTo(stillResting.getValue());
+        assertThat(buyer.getCredit() + buyer.getReservedCredit() + buyer.getTradedCredit()).isEqualTo(1_000_000L);
+        assertThat(seller.getCredit()).isEqualTo(buyer.getTradedCredit());
+    }
+
+    @Test
+    void paused_task_sees_every_earlier_request_and_none_of_the_later_ones() throws InterruptedException {
+        AtomicInteger processed = new AtomicInteger();
+        String[] isins = {"ABC", "DEF", "GHI", "JKL", "MNO", "PQR"};
+        for (int i = 0; i < 600; i++)
+            sequencer.submit(isins[i % isins.length], processed::incrementAndGet);
+        int[] seen = new int[2];
+        sequencer.pauseAndRun(() -> {
+            seen[0] = processed.get();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            seen[1] = processed.get();
+        });
+        CountDownLatch done = new CountDownLatch(isins.length);
+        for (String isin : isins)
+            sequencer.submit(isin, done::countDown);
+
+        assertThat(seen).containsExactly(600, 600);
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -0,0 +1,59 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+class ShareholderTest {
+    @Test
+    void keeps_positions_of_each_security_apart() {
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        SecurityRepository securityRepository = new SecurityRepository();
+        List<Security> securities = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            securities.add(Security.builder().isin("S" + i).build());
+            securityRepository.addSecurity(securities.get(i));
+        }
+        for (int i = securities.size() - 1; i >= 0; i--)
+            shareholder.incPosition(securities.get(i), 100 * (i + 1));
+        shareholder.decPosition(securities.get(3), 50);
+
+        assertThat(shareholder.positionCount()).isEqualTo(10);
+        assertThat(shareholder.getPosition(securities.get(3))).isEqualTo(350);
+        assertThat(shareholder.hasEnoughPositionsOn(securities.get(9), 1000)).isTrue();
+        assertThat(shareholder.hasEnoughPositionsOn(securities.get(9), 1001)).isFalse();
+        List<Security> visited = new ArrayList<>();
+        shareholder.forEachPosition(securityRepository::findSecurityByIndex, (security, quantity) -> visited.add(security));
+        assertThat(visited).containsExactlyElementsOf(securities);
+    }
+
+    @Test
+    void cannot_decrease_a_position_below_zero() {
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        Security security = Security.builder().isin("ABC").build();
+        new SecurityRepository().addSecurity(security);
+        shareholder.incPosition(security, 10);
+
+        assertThatIllegalArgumentException().isThrownBy(() -> shareholder.decPosition(security, 11));
+        assertThatIllegalArgumentException().isThrownBy(() -> shareholder.decPosition(Security.builder().isin("XYZ").build(), 1));
+        assertThat(shareholder.getPosition(security)).isEqualTo(10);
+    }
+
+    @Test
+    void positions_are_only_taken_on_securities_added_to_a_repository() {
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        Security security = Security.builder().isin("ABC").build();
+
+        assertThatIllegalStateException().isThrownBy(() -> shareholder.incPosition(security, 10));
+        assertThat(shareholder.getPosition(security)).isZero();
+        assertThat(shareholder.positionCount()).isZero();
+    }
+}
@@ -0,0 +1,150 @@
+package ir.ramtung.tinyme.journal;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MappedRequestJournalTest {
+    @TempDir
+    Path directory;
+
+    private MappedRequestJournal open(String fsyncPolicy, int segmentSize) throws IOException {
+        return new MappedRequestJournal(directory.toString(), segmentSize, fsyncPolicy, 4, 5);
+    }
+
+    private List<Object> replay(MappedRequestJournal journal) {
+        List<Object> replayed = new ArrayList<>();
+        journal.replay(journal.checkpointSequence(), replayed::add);
+        return replayed;
+    }
+
+    private List<Object> requests(int count) {
+        List<Object> requests = new ArrayList<>();
+        LocalDateTime entryTime = LocalDateTime.of(2024, 3, 1, 9, 30);
+        for (int i = 1; i <= count; i++) {
+            if (i % 3 == 0)
+                requests.add(new DeleteOrderRq(i, "ABC", Side.SELL, i - 1, entryTime));
+            else
+                requests.add(EnterOrderRq.createNewOrderRq(i, "ABC", i, entryTime, Side.BUY, 10 * i, 15450, 1, 2, 0));
+        }
+        return requests;
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".journal")).count();
+        }
+    }
+
+    @Test
+    void appended_requests_are_replayed_in_order_after_a_restart() throws IOException {
+        List<Object> requests = requests(20);
+        MappedRequestJournal journal = open("batch", 1 << 16);
+        for (Object request : requests)
+            journal.append(request);
+        journal.close();
+
+        assertThat(replay(open("batch", 1 << 16))).containsExactlyElementsOf(requests);
+    }
+
+    @Test
+    void requests_span_several_segments() throws IOException {
+        List<Object> requests = requests(50);
+        MappedRequestJournal journal = open("periodic", 512);
+        for (Object request : requests)
+            journal.append(request);
+        journal.close();
+
+        assertThat(segmentCount()).isGreaterThan(1);
+        assertThat(replay(open("periodic", 512))).containsExactlyElementsOf(requests);
+    }
+
+    @Test
+    void checkpoint_discards_requests_covered_by_the_snapshot() throws IOException {
+        List<Object> requests = requests(10);
+        MappedRequestJournal journal = open("batch", 512);
+        for (Object request : requests.subList(0, 6))
+            journal.append(request);
+        journal.checkpoint(journal.lastSequence());
+        for (Object request : requests.subList(6, 10))
+            journal.append(request);
+        journal.close();
+
+        MappedRequestJournal reopened = open("batch", 512);
+        assertThat(replay(reopened)).containsExactlyElementsOf(requests.subList(6, 10));
+        assertThat(reopened.append(requests.get(0))).isEqualTo(11);
+    }
+
+    @Test
+    void checkpoint_in_the_middle_keeps_the_segments_still_needed_for_replay() throws IOException {
+        List<Object> requests = requests(50);
+        MappedRequestJournal journal = open("batch", 512);
+        for (Object request : requests)
+            journal.append(request);
+        long segmentsBefore = segmentCount();
+        journal.checkpoint(30);
+        journal.close();
+
+        assertThat(segmentCount()).isLessThan(segmentsBefore);
+        MappedRequestJournal reopened = open("batch", 512);
+        assertThat(reopened.checkpointSequence()).isEqualTo(30);
+        assertThat(replay(reopened)).containsExactlyElementsOf(requests.subList(30, 50));
+        List<Object> fromEarlier = new ArrayList<>();
+        reopened.replay(10, fromEarlier::add);
+        assertThat(fromEarlier).endsWith(requests.subList(30, 50).toArray());
+    }
+
+    @Test
+    void torn_record_at_the_tail_is_ignored() throws IOException {
+        List<Object> requests = requests(5);
+        MappedRequestJournal journal = open("batch", 1 << 16);
+        for (Object request : requests)
+            journal.append(request);
+        journal.close();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".journal")).sorted().findFirst().orElseThrow();
+        }
+        int lastRecordOffset = 0;
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            for (int i = 0; i < 4; i++) {
+                file.seek(lastRecordOffset);
+                lastRecordOffset += 8 + file.readInt();
+            }
+            file.seek(lastRecordOffset + 12);
+            file.writeLong(0xDEADBEEFL);
+        }
+
+        assertThat(replay(open("batch", 1 << 16))).containsExactlyElementsOf(requests.subList(0, 4));
+    }
+
+    @Test
+    void concurrent_writers_waiting_for_durability_share_flushes() throws Exception {
+        MappedRequestJournal journal = open("request", 1 << 20);
+        List<Object> requests = requests(200);
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+        for (Object request : requests)
+            writers.execute(() -> journal.awaitDurable(journal.append(request)));
+        writers.shutdown();
+        assertThat(writers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        journal.close();
+
+        assertThat(replay(open("request", 1 << 20))).containsExactlyInAnyOrderElementsOf(requests);
+    }
+}
@@ -0,0 +1,143 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import jakarta.jms.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.mockito.InOrder;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class AsyncEventSenderTest {
+    private ConnectionFactory connectionFactory;
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+    private final List<Event> sent = Collections.synchronizedList(new ArrayList<>());
+    private final MessageConverter converter = new MessageConverter() {
+        @Override
+        public jakarta.jms.Message toMessage(Object object, Session session) {
+            sent.add((Event) object);
+            return mock(jakarta.jms.Message.class);
+        }
+
+        @Override
+        public Object fromMessage(jakarta.jms.Message message) {
+            throw new UnsupportedOperationException();
+        }
+    };
+
+    @BeforeEach
+    void setup() throws JMSException {
+        connectionFactory = mock(ConnectionFactory.class);
+        connection = mock(Connection.class);
+        session = mock(Session.class);
+        producer = mock(MessageProducer.class);
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+        when(session.createProducer(any())).thenReturn(producer);
+    }
+
+    private List<Event> events(int count) {
+        List<Event> events = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            events.add(new OrderAcceptedEvent(i, i));
+        return events;
+    }
+
+    @Test
+    void events_are_sent_in_order_on_a_single_transacted_session() throws JMSException {
+        AsyncEventSender sender = new AsyncEventSender(connectionFactory, converter, "responseQueue", 1024, 16, 1000);
+        List<Event> events = events(100);
+        sender.start();
+        events.forEach(sender::enqueue);
+        sender.close();
+
+        assertThat(sent).containsExactlyElementsOf(events);
+        verify(connectionFactory, times(1)).createConnection();
+        verify(connection).createSession(true, Session.SESSION_TRANSACTED);
+        verify(producer, times(100)).send(any());
+        verify(session, atLeast(7)).commit();
+        verify(connection).close();
+    }
+
+    @Test
+    void pending_events_are_flushed_on_close() throws JMSException {
+        AsyncEventSender sender = new AsyncEventSender(connectionFactory, converter, "responseQueue", 1024, 256, 1_000_000);
+        List<Event> events = events(10);
+        events.forEach(sender::enqueue);
+        sender.start();
+        sender.close();
+
+        assertThat(sent).containsExactlyElementsOf(events);
+        verify(session, times(1)).commit();
+    }
+
+    @Test
+    void failed_batch_is_retried_on_a_fresh_connection() throws JMSException {
+        doThrow(new JMSException("broken")).doNothing().when(session).commit();
+        AsyncEventSender sender = new AsyncEventSender(connectionFactory, converter, "responseQueue", 1024, 256, 1_000_000);
+        events(3).forEach(sender::enqueue);
+        sender.start();
+        sender.close();
+
+        InOrder inOrder = inOrder(connectionFactory, connection, session);
+        inOrder.verify(connectionFactory).createConnection();
+        inOrder.verify(session).commit();
+        inOrder.verify(connection).close();
+        inOrder.verify(connectionFactory).createConnection();
+        inOrder.verify(session).commit();
+        assertThat(sent).hasSize(6);
+    }
+
+    @Test
+    @Timeout(10)
+    void events_that_cannot_be_converted_are_dropped_and_the_publisher_keeps_running() throws JMSException {
+        List<Event> events = events(100);
+        MessageConverter failingConverter = new MessageConverter() {
+            @Override
+            public jakarta.jms.Message toMessage(Object object, Session session) throws JMSException {
+                if (events.indexOf(object) % 2 == 1)
+                    throw new MessageConversionException("cannot convert " + object);
+                return converter.toMessage(object, session);
+            }
+
+            @Override
+            public Object fromMessage(jakarta.jms.Message message) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        AsyncEventSender sender = new AsyncEventSender(connectionFactory, failingConverter, "responseQueue", 4, 4, 1000);
+        sender.start();
+        events.forEach(sender::enqueue);
+        sender.close();
+
+        assertThat(sent).hasSize(50).allMatch(event -> events.indexOf(event) % 2 == 0);
+        verify(producer, times(50)).send(any());
+    }
+
+    @Test
+    @Timeout(10)
+    void a_batch_failing_with_an_unchecked_exception_is_dropped_and_the_publisher_keeps_running() throws JMSException {
+        doThrow(new ArithmeticException("broken")).doNothing().when(producer).send(any());
+        AsyncEventSender sender = new AsyncEventSender(connectionFactory, converter, "responseQueue", 4, 1, 1000);
+        sender.start();
+        events(20).forEach(sender::enqueue);
+        sender.close();
+
+        verify(producer, times(20)).send(any());
+        verify(session, times(19)).commit();
+        verify(connectionFactory, times(2)).createConnection();
+    }
+}
@@ -0,0 +1,46 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.pipeline.RequestPipeline;
+import jakarta.jms.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+import static org.mockito.Mockito.*;
+
+class PipelineRequestDispatcherTest {
+    private RequestPipeline requestPipeline;
+    private MessageConverter messageConverter;
+    private PipelineRequestDispatcher dispatcher;
+
+    @BeforeEach
+    void setup() {
+        requestPipeline = mock(RequestPipeline.class);
+        messageConverter = mock(MessageConverter.class);
+        dispatcher = new PipelineRequestDispatcher(requestPipeline, messageConverter);
+    }
+
+    @Test
+    void requests_are_converted_before_they_enter_the_pipeline() throws Exception {
+        Message message = mock(Message.class);
+        DeleteOrderRq request = new DeleteOrderRq(1, "ABC", Side.SELL, 1);
+        when(messageConverter.fromMessage(message)).thenReturn(request);
+
+        dispatcher.receiveRequest(message);
+
+        verify(requestPipeline).submit(request);
+    }
+
+    @Test
+    void a_malformed_message_fails_the_delivery_and_never_enters_the_pipeline() throws Exception {
+        Message message = mock(Message.class);
+        when(messageConverter.fromMessage(message)).thenThrow(new MessageConversionException("malformed"));
+
+        assertThatExceptionOfType(MessageConversionException.class).isThrownBy(() -> dispatcher.receiveRequest(message));
+        verifyNoInteractions(requestPipeline);
+    }
+}
@@ -0,0 +1,117 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.Message;
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.support.converter.MessageConversionException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BinaryCodecTest {
+    private final LocalDateTime time = LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_456_789);
+
+    private Object roundTrip(Object object) {
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        BinaryCodec.encode(object, buffer);
+        buffer.flip();
+        Object decoded = BinaryCodec.decode(buffer);
+        assertThat(buffer.hasRemaining()).isFalse();
+        return decoded;
+    }
+
+    @Test
+    void enter_order_requests_survive_a_round_trip() {
+        EnterOrderRq newOrderRq = EnterOrderRq.createNewOrderRq(1, "ABC", 200, time, Side.BUY, 300, 15450, 2, 3, 100);
+        EnterOrderRq updateOrderRq = EnterOrderRq.createUpdateOrderRq(2, "ABC", 200, time, Side.SELL, 250, 15400, 2, 3, 0);
+
+        assertThat(roundTrip(newOrderRq)).isEqualTo(newOrderRq);
+        assertThat(roundTrip(updateOrderRq)).isEqualTo(updateOrderRq);
+    }
+
+    @Test
+    void missing_fields_are_preserved_as_null() {
+        EnterOrderRq rq = new EnterOrderRq();
+        rq.setRequestId(7);
+
+        assertThat(roundTrip(rq)).isEqualTo(rq);
+    }
+
+    @Test
+    void delete_order_request_survives_a_round_trip() {
+        DeleteOrderRq rq = new DeleteOrderRq(3, "ABC", Side.SELL, 200, time);
+
+        assertThat(roundTrip(rq)).isEqualTo(rq);
+    }
+
+    @Test
+    void events_survive_a_round_trip_including_their_time() {
+        List<Event> events = List.of(
+                new OrderAcceptedEvent(time, 1, 200),
+                new OrderUpdatedEvent(time, 2, 200),
+                new OrderDeletedEvent(time, 3, 200),
+                new OrderExecutedEvent(time, 4, 200, List.of(new TradeDTO("ABC", 15450, 300, 200, 100), new TradeDTO("ABC", 15500, 50, 200, 101))),
+                new OrderRejectedEvent(time, 5, 200, List.of(Message.UNKNOWN_SECURITY_ISIN, Message.INVALID_PEAK_SIZE))
+        );
+        for (Event event : events) {
+            Event decoded = (Event) roundTrip(event);
+            assertThat(decoded).isEqualTo(event);
+            assertThat(decoded.getTime()).isEqualTo(time);
+        }
+    }
+
+    @Test
+    void unknown_version_is_rejected() {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{(byte) (BinaryCodec.VERSION + 1), BinaryCodec.ENTER_ORDER_RQ});
+
+        assertThatThrownBy(() -> BinaryCodec.decode(buffer)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void converter_writes_bytes_messages_with_the_type_property() throws JMSException {
+        BinaryMessageConverter converter = new BinaryMessageConverter("_type");
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        BytesMessage message = mock(BytesMessage.class);
+        doAnswer(invocation -> {
+            body.write(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2));
+            return null;
+        }).when(message).writeBytes(any(byte[].class), anyInt(), anyInt());
+        Session session = mock(Session.class);
+        when(session.createBytesMessage()).thenReturn(message);
+        DeleteOrderRq rq = new DeleteOrderRq(3, "ABC", Side.SELL, 200, time);
+
+        converter.toMessage(rq, session);
+
+        verify(message).setStringProperty("_type", DeleteOrderRq.class.getName());
+        BytesMessage received = mock(BytesMessage.class);
+        byte[] bytes = body.toByteArray();
+        when(received.getBodyLength()).thenReturn((long) bytes.length);
+        when(received.readBytes(any(byte[].class), anyInt())).thenAnswer(invocation -> {
+            System.arraycopy(bytes, 0, invocation.getArgument(0), 0, bytes.length);
+            return bytes.length;
+        });
+        assertThat(converter.fromMessage(received)).isEqualTo(rq);
+    }
+
+    @Test
+    void converter_rejects_non_bytes_messages() {
+        BinaryMessageConverter converter = new BinaryMessageConverter("_type");
+
+        assertThatThrownBy(() -> converter.fromMessage(mock(jakarta.jms.TextMessage.class)))
+                .isInstanceOf(MessageConversionException.class);
+    }
+}
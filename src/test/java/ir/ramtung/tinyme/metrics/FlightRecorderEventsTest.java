@@ -0,0 +1,103 @@
+package ir.ramtung.tinyme.metrics;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.messaging.exception.InvalidRequestException;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FlightRecorderEventsTest {
+    @TempDir
+    Path directory;
+
+    private List<RecordedEvent> record(Runnable action) throws Exception {
+        Path file = directory.resolve("tinyme.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("tinyme.Matching");
+            recording.enable("tinyme.CreditRejection");
+            recording.enable("tinyme.Enqueue");
+            recording.enable("tinyme.UpdateRollback");
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+
+    @Test
+    void matching_reports_levels_crossed_trades_credit_rejections_and_enqueues() throws Exception {
+        Security security = Security.builder().isin("ABC").build();
+        new SecurityRepository().addSecurity(security);
+        Broker seller = Broker.builder().brokerId(1).build();
+        Broker buyer = Broker.builder().brokerId(2).credit(1_000_000).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, 1_000);
+        security.getOrderBook().enqueue(new Order(1, security, Side.SELL, 100, 1000, seller, shareholder));
+        security.getOrderBook().enqueue(new Order(2, security, Side.SELL, 100, 1000, seller, shareholder));
+        security.getOrderBook().enqueue(new Order(3, security, Side.SELL, 100, 1010, seller, shareholder));
+        Matcher matcher = new Matcher();
+
+        List<RecordedEvent> events = record(() -> {
+            matcher.execute(new Order(4, security, Side.BUY, 250, 1010, buyer, shareholder));
+            matcher.execute(new Order(5, security, Side.BUY, 10_000, 1010, buyer, shareholder));
+            matcher.execute(new Order(6, security, Side.BUY, 10, 900, buyer, shareholder));
+        });
+
+        List<RecordedEvent> matching = ofType(events, "tinyme.Matching");
+        assertThat(matching).hasSize(2);
+        assertThat(matching.get(0).getString("isin")).isEqualTo("ABC");
+        assertThat(matching.get(0).getInt("tradeCount")).isEqualTo(3);
+        assertThat(matching.get(0).getInt("levelsCrossed")).isEqualTo(2);
+        assertThat(matching.get(0).getLong("tradedQuantity")).isEqualTo(250);
+
+        List<RecordedEvent> rejections = ofType(events, "tinyme.CreditRejection");
+        assertThat(rejections).hasSize(1);
+        assertThat(rejections.get(0).getLong("orderId")).isEqualTo(5);
+        assertThat(rejections.get(0).getLong("availableCredit")).isEqualTo(749_500);
+
+        List<RecordedEvent> enqueues = ofType(events, "tinyme.Enqueue");
+        assertThat(enqueues).hasSize(1);
+        assertThat(enqueues.get(0).getBoolean("newLevel")).isTrue();
+        assertThat(enqueues.get(0).getInt("levelCount")).isEqualTo(1);
+    }
+
+    @Test
+    void rejected_updates_report_the_rollback() throws Exception {
+        Security security = Security.builder().isin("ABC").build();
+        Broker buyer = Broker.builder().brokerId(1).credit(100_000).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        Matcher matcher = new Matcher();
+        matcher.execute(new Order(1, security, Side.BUY, 100, 1000, buyer, shareholder));
+
+        List<RecordedEvent> events = record(() -> {
+            try {
+                security.updateOrder(EnterOrderRq.createUpdateOrderRq(2, "ABC", 1, LocalDateTime.now(),
+                        Side.BUY, 200, 1000, 1, 1, 0), matcher);
+            } catch (InvalidRequestException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+
+        List<RecordedEvent> rollbacks = ofType(events, "tinyme.UpdateRollback");
+        assertThat(rollbacks).hasSize(1);
+        assertThat(rollbacks.get(0).getLong("orderId")).isEqualTo(1);
+        assertThat(rollbacks.get(0).getString("outcome")).isEqualTo("NOT_ENOUGH_CREDIT");
+        assertThat(ofType(events, "tinyme.CreditRejection")).hasSize(1);
+    }
+}
@@ -0,0 +1,90 @@
+package ir.ramtung.tinyme.metrics;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.journal.DisabledRequestJournal;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.Mockito.mock;
+
+class RequestMetricsTest {
+    private RequestMetrics requestMetrics;
+    private OrderHandler orderHandler;
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+
+    @BeforeEach
+    void setup() {
+        requestMetrics = new RequestMetrics(true);
+        SecurityRepository securityRepository = new SecurityRepository();
+        BrokerRepository brokerRepository = new BrokerRepository();
+        ShareholderRepository shareholderRepository = new ShareholderRepository();
+        security = Security.builder().isin("ABC").build();
+        securityRepository.addSecurity(security);
+        broker = Broker.builder().brokerId(1).credit(1_000_000).build();
+        brokerRepository.addBroker(broker);
+        shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, 1_000);
+        shareholderRepository.addShareholder(shareholder);
+        orderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository, mock(EventPublisher.class),
+                new Matcher(requestMetrics), new DisabledRequestJournal(), requestMetrics);
+    }
+
+    private EnterOrderRq newOrder(long id, Side side, int quantity, int price) {
+        return EnterOrderRq.createNewOrderRq(id, "ABC", id, LocalDateTime.now(), side, quantity, price, 1, 1, 0);
+    }
+
+    @Test
+    void histogram_reports_percentiles_within_bucket_precision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 100_000; nanos++)
+            histogram.record(nanos);
+
+        assertThat(histogram.getCount()).isEqualTo(100_000);
+        assertThat(histogram.valueAtPercentile(50)).isBetween(50_000L, 56_250L);
+        assertThat(histogram.valueAtPercentile(99)).isBetween(99_000L, 100_000L);
+        assertThat(histogram.valueAtPercentile(100)).isEqualTo(100_000);
+        assertThat(histogram.getMeanMicros()).isCloseTo(50.0, offset(0.01));
+    }
+
+    @Test
+    void records_stages_under_the_outcome_of_each_request() {
+        orderHandler.handleEnterOrder(newOrder(1, Side.SELL, 100, 1000));
+        orderHandler.handleEnterOrder(newOrder(2, Side.BUY, 100, 1000));
+        orderHandler.handleEnterOrder(newOrder(3, Side.BUY, 10_000, 1000));
+        orderHandler.handleEnterOrder(newOrder(4, Side.BUY, -1, 1000));
+        orderHandler.handleDeleteOrder(new DeleteOrderRq(5, "ABC", Side.SELL, 99));
+
+        assertThat(requestMetrics.histogram(RequestKind.NEW_ORDER, Outcome.ACCEPTED, Stage.TOTAL).getCount()).isEqualTo(1);
+        assertThat(requestMetrics.histogram(RequestKind.NEW_ORDER, Outcome.EXECUTED, Stage.MATCH).getCount()).isEqualTo(1);
+        assertThat(requestMetrics.histogram(RequestKind.NEW_ORDER, Outcome.REJECTED_CREDIT, Stage.TOTAL).getCount()).isEqualTo(1);
+        assertThat(requestMetrics.histogram(RequestKind.NEW_ORDER, Outcome.REJECTED_INVALID, Stage.VALIDATION).getCount()).isEqualTo(1);
+        assertThat(requestMetrics.histogram(RequestKind.NEW_ORDER, Outcome.REJECTED_INVALID, Stage.MATCH).getCount()).isZero();
+        assertThat(requestMetrics.histogram(RequestKind.DELETE_ORDER, Outcome.REJECTED_INVALID, Stage.ORDER).getCount()).isEqualTo(1);
+    }
+
+    @Test
+    void disabled_metrics_never_start_a_timing() {
+        RequestMetrics disabled = RequestMetrics.disabled();
+        RequestTiming timing = disabled.start(RequestKind.NEW_ORDER, 0);
+        timing.lap(Stage.VALIDATION);
+        timing.outcome(Outcome.ACCEPTED);
+        timing.finish();
+
+        assertThat(disabled.now()).isZero();
+        assertThat(disabled.current()).isSameAs(timing);
+    }
+}
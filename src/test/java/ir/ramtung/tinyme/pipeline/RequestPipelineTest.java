@@ -0,0 +1,133 @@
+package ir.ramtung.tinyme.pipeline;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.Matcher;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.journal.DisabledRequestJournal;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.Message;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.metrics.RequestMetrics;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.InOrder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class RequestPipelineTest {
+    private EventPublisher eventPublisher;
+    private RequestPipeline pipeline;
+    private SecurityRepository securityRepository;
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+
+    private RequestPipeline newPipeline(int bufferSize, String waitStrategy) {
+        securityRepository = new SecurityRepository();
+        BrokerRepository brokerRepository = new BrokerRepository();
+        ShareholderRepository shareholderRepository = new ShareholderRepository();
+        security = Security.builder().isin("ABC").build();
+        broker = Broker.builder().brokerId(1).credit(100_000_000L).build();
+        shareholder = Shareholder.builder().shareholderId(1).build();
+        securityRepository.addSecurity(security);
+        shareholder.incPosition(security, 100_000);
+        brokerRepository.addBroker(broker);
+        shareholderRepository.addShareholder(shareholder);
+        OrderHandler orderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository, eventPublisher, new Matcher(), new DisabledRequestJournal(), RequestMetrics.disabled());
+        return new RequestPipeline(orderHandler, eventPublisher, bufferSize, waitStrategy);
+    }
+
+    private void submit(Object request) throws InterruptedException {
+        pipeline.submit(request);
+    }
+
+    @BeforeEach
+    void setup() {
+        eventPublisher = mock(EventPublisher.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null)
+            pipeline.stop();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"busy-spin", "yield", "block"})
+    void requests_go_through_all_stages_in_order(String waitStrategy) throws InterruptedException {
+        pipeline = newPipeline(4, waitStrategy);
+        pipeline.start();
+
+        for (int i = 1; i <= 100; i++)
+            submit(EnterOrderRq.createNewOrderRq(i, "ABC", i, LocalDateTime.now(), Side.SELL, 10, 15_000 + i, 1, 1, 0));
+        submit(new DeleteOrderRq(101, "ABC", Side.SELL, 1));
+        submit(EnterOrderRq.createNewOrderRq(102, "ABC", 102, LocalDateTime.now(), Side.BUY, 15, 15_002, 1, 1, 0));
+
+        InOrder inOrder = inOrder(eventPublisher);
+        for (int i = 1; i <= 100; i++)
+            inOrder.verify(eventPublisher, timeout(5000)).publish(new OrderAcceptedEvent(i, i));
+        inOrder.verify(eventPublisher, timeout(5000)).publish(new OrderDeletedEvent(101, 1));
+        inOrder.verify(eventPublisher, timeout(5000)).publish(new OrderAcceptedEvent(102, 102));
+        inOrder.verify(eventPublisher, timeout(5000)).publish(any(OrderExecutedEvent.class));
+        assertThat(security.getOrderBook().getSellQueue()).hasSize(98);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"busy-spin", "block"})
+    void invalid_requests_are_rejected_by_the_validation_stage(String waitStrategy) throws InterruptedException {
+        pipeline = newPipeline(8, waitStrategy);
+        pipeline.start();
+
+        submit(EnterOrderRq.createNewOrderRq(1, "XXX", 1, LocalDateTime.now(), Side.SELL, 10, 15_000, 1, 1, 0));
+        submit(new DeleteOrderRq(2, "ABC", Side.SELL, 1));
+
+        verify(eventPublisher, timeout(5000)).publish(new OrderRejectedEvent(1, 1, List.of(Message.UNKNOWN_SECURITY_ISIN)));
+        verify(eventPublisher, timeout(5000)).publish(new OrderRejectedEvent(2, 1, List.of(Message.ORDER_ID_NOT_FOUND)));
+    }
+
+    @Test
+    void a_request_failing_in_a_stage_is_rejected_and_the_next_one_goes_through() throws InterruptedException {
+        pipeline = newPipeline(8, "block");
+        securityRepository.addSecurity(Security.builder().isin("ZERO").lotSize(0).build());
+        pipeline.start();
+
+        submit(EnterOrderRq.createNewOrderRq(1, "ZERO", 1, LocalDateTime.now(), Side.SELL, 10, 15_000, 1, 1, 0));
+        submit(EnterOrderRq.createNewOrderRq(2, "ABC", 2, LocalDateTime.now(), Side.SELL, 10, 15_000, 1, 1, 0));
+
+        InOrder inOrder = inOrder(eventPublisher);
+        inOrder.verify(eventPublisher, timeout(5000)).publish(new OrderRejectedEvent(1, 1, List.of(Message.REQUEST_PROCESSING_FAILED)));
+        inOrder.verify(eventPublisher, timeout(5000)).publish(new OrderAcceptedEvent(2, 2));
+    }
+
+    @Test
+    void paused_task_runs_on_the_matching_stage_between_requests() throws InterruptedException {
+        pipeline = newPipeline(16, "block");
+        pipeline.start();
+
+        for (int i = 1; i <= 10; i++)
+            submit(EnterOrderRq.createNewOrderRq(i, "ABC", i, LocalDateTime.now(), Side.SELL, 10, 15_000 + i, 1, 1, 0));
+        int[] queued = new int[1];
+        String[] thread = new String[1];
+        pipeline.pauseAndRun(() -> {
+            queued[0] = security.getOrderBook().getSellQueue().size();
+            thread[0] = Thread.currentThread().getName();
+        });
+        submit(EnterOrderRq.createNewOrderRq(11, "ABC", 11, LocalDateTime.now(), Side.SELL, 10, 15_011, 1, 1, 0));
+
+        assertThat(queued[0]).isEqualTo(10);
+        assertThat(thread[0]).isEqualTo("pipeline-matching");
+        verify(eventPublisher, timeout(5000)).publish(new OrderAcceptedEvent(11, 11));
+    }
+}
@@ -0,0 +1,97 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinarySnapshotTest {
+    @TempDir
+    Path directory;
+    private final BrokerRepository brokerRepository = new BrokerRepository();
+    private final ShareholderRepository shareholderRepository = new ShareholderRepository();
+    private final SecurityRepository securityRepository = new SecurityRepository();
+    private final LocalDateTime entryTime = LocalDateTime.of(2024, 2, 23, 10, 59, 54, 970_000_000);
+
+    @BeforeEach
+    void setup() {
+        Security security = Security.builder().isin("ABC").tickSize(5).lotSize(10).build();
+        Security other = Security.builder().isin("XYZ").build();
+        securityRepository.addSecurity(security);
+        securityRepository.addSecurity(other);
+        Broker broker1 = Broker.builder().brokerId(1).name("broker1").credit(100_000).build();
+        Broker broker2 = Broker.builder().brokerId(2).name("broker2").credit(250_000).build();
+        brokerRepository.addBroker(broker1);
+        brokerRepository.addBroker(broker2);
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).name("shareholder1").build();
+        shareholder.incPosition(security, 1000);
+        shareholder.incPosition(other, 50);
+        shareholderRepository.addShareholder(shareholder);
+
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.enqueue(new Order(1, security, Side.BUY, 300, 15700, broker1, shareholder, entryTime));
+        orderBook.enqueue(new Order(2, security, Side.BUY, 40, 15500, broker2, shareholder, entryTime.plusSeconds(1)));
+        orderBook.enqueue(new Order(3, security, Side.BUY, 400, 15700, broker2, shareholder, entryTime.plusSeconds(2)));
+        orderBook.enqueue(new IcebergOrder(4, security, Side.SELL, 500, 15800, broker1, shareholder, entryTime, 100, 70, OrderStatus.QUEUED));
+        orderBook.enqueue(new Order(5, security, Side.SELL, 200, 15750, broker1, shareholder, entryTime));
+    }
+
+    private static String describe(Order order) {
+        String description = order.getOrderId() + ":" + order.getSecurity().getIsin() + ":" + order.getSide() + ":" + order.getTotalQuantity()
+                + "@" + order.getPrice() + ":" + order.getBroker().getBrokerId() + ":" + order.getShareholder().getShareholderId()
+                + ":" + order.getEntryTime() + ":" + order.getStatus();
+        if (order instanceof IcebergOrder icebergOrder)
+            description += ":" + icebergOrder.getPeakSize() + ":" + icebergOrder.getDisplayedQuantity();
+        return description;
+    }
+
+    private static List<String> describe(List<Order> orders) {
+        return orders.stream().map(BinarySnapshotTest::describe).toList();
+    }
+
+    @Test
+    void state_survives_a_round_trip() throws IOException {
+        Path file = directory.resolve("state.snapshot");
+        BinarySnapshot.write(file, BinarySnapshot.capture(42, brokerRepository, shareholderRepository, securityRepository));
+        List<String> buyQueue = describe(securityRepository.findSecurityByIsin("ABC").getOrderBook().getBuyQueue());
+        List<String> sellQueue = describe(securityRepository.findSecurityByIsin("ABC").getOrderBook().getSellQueue());
+
+        BrokerRepository brokers = new BrokerRepository();
+        ShareholderRepository shareholders = new ShareholderRepository();
+        SecurityRepository securities = new SecurityRepository();
+        assertThat(BinarySnapshot.read(file, brokers, shareholders, securities)).isEqualTo(42);
+
+        Security security = securities.findSecurityByIsin("ABC");
+        assertThat(security.getTickSize()).isEqualTo(5);
+        assertThat(security.getLotSize()).isEqualTo(10);
+        assertThat(brokers.findBrokerById(1).getCredit()).isEqualTo(100_000);
+        assertThat(brokers.findBrokerById(2).getName()).isEqualTo("broker2");
+        Shareholder shareholder = shareholders.findShareholderById(1);
+        assertThat(shareholder.hasEnoughPositionsOn(security, 1000)).isTrue();
+        assertThat(shareholder.hasEnoughPositionsOn(security, 1001)).isFalse();
+        assertThat(shareholder.hasEnoughPositionsOn(securities.findSecurityByIsin("XYZ"), 50)).isTrue();
+        assertThat(describe(security.getOrderBook().getBuyQueue())).isEqualTo(buyQueue);
+        assertThat(describe(security.getOrderBook().getSellQueue())).isEqualTo(sellQueue);
+        assertThat(security.getOrderBook().getBuyQueue().getFirst().getBroker()).isSameAs(brokers.findBrokerById(1));
+        assertThat(security.getOrderBook().totalSellQuantityByShareholder(shareholder)).isEqualTo(700);
+        assertThat(securities.findSecurityByIsin("XYZ").getOrderBook().getBuyQueue()).isEmpty();
+    }
+
+    @Test
+    void files_without_the_snapshot_header_are_rejected() throws IOException {
+        Path file = directory.resolve("state.snapshot");
+        Files.writeString(file, "orderId,isin,side");
+
+        assertThatThrownBy(() -> BinarySnapshot.read(file, brokerRepository, shareholderRepository, securityRepository))
+                .isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,118 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.journal.DisabledRequestJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataLoaderTest {
+    @TempDir
+    Path directory;
+    private final BrokerRepository brokerRepository = new BrokerRepository();
+    private final ShareholderRepository shareholderRepository = new ShareholderRepository();
+    private final SecurityRepository securityRepository = new SecurityRepository();
+    private DataLoader dataLoader;
+
+    @BeforeEach
+    void setup() throws IOException {
+        dataLoader = new DataLoader(brokerRepository, shareholderRepository, securityRepository, null,
+                new DisabledRequestJournal(), Optional.empty());
+        resource("brokerCsvResource", "broker.csv",
+                "brokerId,name,credit", "1,broker1,100000", "2,broker2,250000");
+        resource("shareholderCsvResource", "shareholder.csv",
+                "shareholderId,name", "1,shareholder1", "2,shareholder2");
+        resource("securityCsvResource", "security.csv",
+                "isin,tickSize,lotSize", "ABC,1,1", "XYZ,5,10");
+        resource("positionCsvResource", "position.csv",
+                "shareholderId,isin,positions", "1,ABC,1000", "2,XYZ,500", "1,XYZ,300");
+        resource("orderBookCsvResource", "orderbook.csv",
+                "orderId,isin,side,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity",
+                "1,ABC,BUY,304,15700,1,1,2024-02-23T10:59:54.970,0,0",
+                "2,XYZ,SELL,500,2000,2,2,2024-02-23T10:59:55.970,100,60",
+                "3,ABC,BUY,43,15700,2,1,2024-02-23T10:59:56.970,0,0",
+                "4,ABC,SELL,10,15800,1,1,2024-02-23T10:59:57.970,0,0",
+                "5,ABC,BUY,20,15750,1,1,2024-02-23T10:59:58.970,0,0");
+    }
+
+    private void resource(String field, String fileName, String... lines) throws IOException {
+        Path file = directory.resolve(fileName);
+        Files.write(file, List.of(lines));
+        ReflectionTestUtils.setField(dataLoader, field, new FileSystemResource(file));
+    }
+
+    private void assertLoaded() {
+        assertThat(brokerRepository.findBrokerById(2).getCredit()).isEqualTo(250_000);
+        Security abc = securityRepository.findSecurityByIsin("ABC");
+        Security xyz = securityRepository.findSecurityByIsin("XYZ");
+        assertThat(xyz.getTickSize()).isEqualTo(5);
+        assertThat(xyz.getLotSize()).isEqualTo(10);
+        Shareholder shareholder = shareholderRepository.findShareholderById(1);
+        assertThat(shareholder.hasEnoughPositionsOn(abc, 1000)).isTrue();
+        assertThat(shareholder.hasEnoughPositionsOn(xyz, 300)).isTrue();
+        assertThat(shareholder.hasEnoughPositionsOn(xyz, 301)).isFalse();
+        assertThat(abc.getOrderBook().getBuyQueue()).extracting(Order::getOrderId).containsExactly(5L, 1L, 3L);
+        assertThat(abc.getOrderBook().getSellQueue()).extracting(Order::getOrderId).containsExactly(4L);
+        Order iceberg = xyz.getOrderBook().findByOrderId(Side.SELL, 2);
+        assertThat(iceberg).isInstanceOf(IcebergOrder.class);
+        assertThat(iceberg.getQuantity()).isEqualTo(60);
+        assertThat(iceberg.getBroker()).isSameAs(brokerRepository.findBrokerById(2));
+    }
+
+    @Test
+    void sequential_load_builds_entities_positions_and_books() throws Exception {
+        dataLoader.importCsv();
+
+        assertLoaded();
+    }
+
+    @Test
+    void parallel_load_builds_the_same_state_as_sequential_load() throws Exception {
+        ReflectionTestUtils.setField(dataLoader, "parallelLoad", true);
+
+        dataLoader.importCsv();
+
+        assertLoaded();
+    }
+
+    @Test
+    void broker_columns_are_id_name_and_credit() throws Exception {
+        dataLoader.importCsv();
+
+        Broker broker = brokerRepository.findBrokerById(1);
+        assertThat(broker.getName()).isEqualTo("broker1");
+        assertThat(broker.getCredit()).isEqualTo(100_000);
+        assertThat(brokerRepository.findBrokerById(2).getCredit()).isEqualTo(250_000);
+    }
+
+    @Test
+    void shipped_csv_files_keep_the_column_layout_the_loader_reads() throws IOException {
+        assertThat(header("broker.csv")).isEqualTo("brokerId,name,credit");
+        assertThat(header("shareholder.csv")).isEqualTo("shareholderId,name");
+        assertThat(header("security.csv")).isEqualTo("isin,tickSize,lotSize");
+        assertThat(header("position.csv")).isEqualTo("shareholderId,isin,positions");
+        assertThat(header("orderbook.csv"))
+                .isEqualTo("orderId,isin,side,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity");
+    }
+
+    private static String header(String fileName) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource("persistence/" + fileName).getInputStream(), StandardCharsets.UTF_8))) {
+            return reader.readLine();
+        }
+    }
+}
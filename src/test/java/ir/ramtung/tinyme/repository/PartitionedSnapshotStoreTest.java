@@ -0,0 +1,125 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionedSnapshotStoreTest {
+    @TempDir
+    Path directory;
+    private final BrokerRepository brokerRepository = new BrokerRepository();
+    private final ShareholderRepository shareholderRepository = new ShareholderRepository();
+    private final SecurityRepository securityRepository = new SecurityRepository();
+    private Security abc;
+    private Security xyz;
+    private Broker broker;
+    private Shareholder shareholder;
+    private PartitionedSnapshotStore store;
+
+    @BeforeEach
+    void setup() {
+        abc = Security.builder().isin("ABC").build();
+        xyz = Security.builder().isin("XYZ").tickSize(5).build();
+        securityRepository.addSecurity(abc);
+        securityRepository.addSecurity(xyz);
+        broker = Broker.builder().brokerId(1).name("broker1").credit(100_000).build();
+        brokerRepository.addBroker(broker);
+        shareholder = Shareholder.builder().shareholderId(1).name("shareholder1").build();
+        shareholder.incPosition(abc, 1000);
+        shareholder.incPosition(xyz, 500);
+        shareholderRepository.addShareholder(shareholder);
+        LocalDateTime entryTime = LocalDateTime.of(2024, 2, 23, 10, 0);
+        abc.getOrderBook().enqueue(new Order(1, abc, Side.BUY, 100, 15700, broker, shareholder, entryTime));
+        abc.getOrderBook().enqueue(new IcebergOrder(2, abc, Side.SELL, 500, 15800, broker, shareholder, entryTime, 100, 60, OrderStatus.QUEUED));
+        xyz.getOrderBook().enqueue(new Order(3, xyz, Side.SELL, 50, 2000, broker, shareholder, entryTime));
+        store = new PartitionedSnapshotStore(brokerRepository, shareholderRepository, securityRepository, directory.toString());
+    }
+
+    private List<String> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    @Test
+    void first_save_writes_every_partition() throws IOException {
+        store.capture(5).write();
+
+        assertThat(files()).containsExactly("MANIFEST", "brokers.1.csv", "orderbook-ABC.1.csv", "orderbook-XYZ.1.csv",
+                "positions-ABC.1.csv", "positions-XYZ.1.csv", "securities.1.csv", "shareholders.1.csv");
+    }
+
+    @Test
+    void size_counts_the_manifest_and_every_live_partition() throws IOException {
+        store.capture(5).write();
+        abc.getOrderBook().removeByOrderId(Side.BUY, 1);
+        store.capture(6).write();
+
+        long size = 0;
+        for (String file : files())
+            size += Files.size(directory.resolve(file));
+        assertThat(store.size()).isEqualTo(size);
+    }
+
+    @Test
+    void later_saves_rewrite_only_the_changed_partitions() throws IOException {
+        store.capture(5).write();
+        abc.getOrderBook().removeByOrderId(Side.BUY, 1);
+        store.capture(6).write();
+
+        assertThat(files()).containsExactly("MANIFEST", "brokers.1.csv", "orderbook-ABC.2.csv", "orderbook-XYZ.1.csv",
+                "positions-ABC.2.csv", "positions-XYZ.1.csv", "securities.1.csv", "shareholders.1.csv");
+
+        broker.receiveCredit(10);
+        store.capture(7).write();
+        assertThat(files()).contains("brokers.3.csv").doesNotContain("brokers.1.csv", "orderbook-ABC.3.csv");
+    }
+
+    @Test
+    void saved_state_loads_back_with_its_journal_sequence() throws IOException {
+        store.capture(5).write();
+        abc.getOrderBook().removeByOrderId(Side.BUY, 1);
+        broker.receiveCredit(10);
+        store.capture(9).write();
+
+        BrokerRepository brokers = new BrokerRepository();
+        ShareholderRepository shareholders = new ShareholderRepository();
+        SecurityRepository securities = new SecurityRepository();
+        PartitionedSnapshotStore reloaded = new PartitionedSnapshotStore(brokers, shareholders, securities, directory.toString());
+        assertThat(reloaded.exists()).isTrue();
+        assertThat(reloaded.load()).isEqualTo(9);
+
+        Security loadedAbc = securities.findSecurityByIsin("ABC");
+        assertThat(securities.findSecurityByIsin("XYZ").getTickSize()).isEqualTo(5);
+        assertThat(brokers.findBrokerById(1).getCredit()).isEqualTo(100_010);
+        assertThat(shareholders.findShareholderById(1).hasEnoughPositionsOn(loadedAbc, 1000)).isTrue();
+        assertThat(shareholders.findShareholderById(1).hasEnoughPositionsOn(loadedAbc, 1001)).isFalse();
+        assertThat(loadedAbc.getOrderBook().getBuyQueue()).isEmpty();
+        IcebergOrder iceberg = (IcebergOrder) loadedAbc.getOrderBook().getSellQueue().getFirst();
+        assertThat(iceberg.getTotalQuantity()).isEqualTo(500);
+        assertThat(iceberg.getDisplayedQuantity()).isEqualTo(60);
+
+        reloaded.capture(10).write();
+        assertThat(files()).contains("MANIFEST", "orderbook-ABC.2.csv", "brokers.2.csv");
+    }
+
+    @Test
+    void partitions_written_without_a_manifest_are_ignored() throws IOException {
+        store.capture(5).write();
+        Files.writeString(directory.resolve("orderbook-ABC.2.csv"), "garbage");
+
+        PartitionedSnapshotStore reloaded = new PartitionedSnapshotStore(new BrokerRepository(), new ShareholderRepository(),
+                new SecurityRepository(), directory.toString());
+        assertThat(reloaded.load()).isEqualTo(5);
+    }
+}
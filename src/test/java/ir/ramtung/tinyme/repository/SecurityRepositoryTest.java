@@ -0,0 +1,113 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.Security;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class SecurityRepositoryTest {
+    private final SecurityRepository securityRepository = new SecurityRepository();
+
+    private List<Security> allSecurities() {
+        List<Security> securities = new ArrayList<>();
+        securityRepository.allSecurities().forEach(securities::add);
+        return securities;
+    }
+
+    @Test
+    void securities_are_found_by_isin_and_by_index() {
+        Security abc = Security.builder().isin("ABC").build();
+        Security xyz = Security.builder().isin("XYZ").build();
+        securityRepository.addSecurity(abc);
+        securityRepository.addSecurity(xyz);
+
+        assertThat(abc.getIndex()).isZero();
+        assertThat(xyz.getIndex()).isEqualTo(1);
+        assertThat(securityRepository.findSecurityByIndex(abc.getIndex())).isSameAs(abc);
+        assertThat(securityRepository.findSecurityByIndex(xyz.getIndex())).isSameAs(xyz);
+        assertThat(securityRepository.findSecurityByIsin("XYZ")).isSameAs(xyz);
+        assertThat(securityRepository.findSecurityByIndex(-1)).isNull();
+        assertThat(allSecurities()).containsExactly(abc, xyz);
+    }
+
+    @Test
+    void replacing_a_security_takes_over_its_index() {
+        Security original = Security.builder().isin("ABC").build();
+        Security replacement = Security.builder().isin("ABC").lotSize(10).build();
+        securityRepository.addSecurity(original);
+        securityRepository.addSecurity(replacement);
+
+        assertThat(replacement.getIndex()).isEqualTo(original.getIndex());
+        assertThat(securityRepository.findSecurityByIndex(replacement.getIndex())).isSameAs(replacement);
+        assertThat(allSecurities()).containsExactly(replacement);
+    }
+
+    @Test
+    void every_load_numbers_the_securities_from_zero() {
+        for (int load = 0; load < 2; load++) {
+            securityRepository.clear();
+            for (String isin : List.of("ABC", "DEF", "GHI"))
+                securityRepository.addSecurity(Security.builder().isin(isin).build());
+
+            assertThat(allSecurities()).extracting(Security::getIndex).containsExactly(0, 1, 2);
+            assertThat(securityRepository.findSecurityByIndex(3)).isNull();
+        }
+    }
+
+    @Test
+    void a_security_keeps_its_index_when_added_again_after_a_clear() {
+        Security abc = Security.builder().isin("ABC").build();
+        Security xyz = Security.builder().isin("XYZ").build();
+        securityRepository.addSecurity(abc);
+        securityRepository.addSecurity(xyz);
+        securityRepository.clear();
+        securityRepository.addSecurity(xyz);
+        Security def = Security.builder().isin("DEF").build();
+        securityRepository.addSecurity(def);
+
+        assertThat(xyz.getIndex()).isEqualTo(1);
+        assertThat(def.getIndex()).isEqualTo(2);
+        assertThat(securityRepository.findSecurityByIndex(0)).isNull();
+        assertThat(allSecurities()).containsExactly(xyz, def);
+    }
+
+    @Test
+    void a_security_keeps_its_index_in_another_repository() {
+        Security security = Security.builder().isin("ABC").build();
+        securityRepository.addSecurity(Security.builder().isin("XYZ").build());
+        securityRepository.addSecurity(security);
+        SecurityRepository other = new SecurityRepository();
+        other.addSecurity(security);
+
+        assertThat(security.getIndex()).isEqualTo(1);
+        assertThat(other.findSecurityByIndex(1)).isSameAs(security);
+        assertThat(other.findSecurityByIsin("ABC")).isSameAs(security);
+    }
+
+    @Test
+    void two_securities_cannot_share_an_index() {
+        Security abc = Security.builder().isin("ABC").build();
+        Security xyz = Security.builder().isin("XYZ").build();
+        securityRepository.addSecurity(abc);
+        SecurityRepository other = new SecurityRepository();
+        other.addSecurity(xyz);
+
+        assertThat(Security.builder().isin("DEF").build().getIndex()).isEqualTo(Security.UNREGISTERED);
+        assertThatIllegalArgumentException().isThrownBy(() -> securityRepository.addSecurity(xyz));
+        assertThat(securityRepository.findSecurityByIsin("XYZ")).isNull();
+    }
+
+    @Test
+    void clear_forgets_every_index() {
+        Security security = Security.builder().isin("ABC").build();
+        securityRepository.addSecurity(security);
+        securityRepository.clear();
+
+        assertThat(securityRepository.findSecurityByIndex(security.getIndex())).isNull();
+        assertThat(allSecurities()).isEmpty();
+    }
+}
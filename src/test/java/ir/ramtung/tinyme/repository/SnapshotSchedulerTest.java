@@ -0,0 +1,50 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.DirectRequestSequencer;
+import ir.ramtung.tinyme.journal.RequestJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+class SnapshotSchedulerTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void snapshot_records_the_journal_sequence_and_trims_the_journal() throws Exception {
+        BrokerRepository brokerRepository = new BrokerRepository();
+        ShareholderRepository shareholderRepository = new ShareholderRepository();
+        SecurityRepository securityRepository = new SecurityRepository();
+        Security security = Security.builder().isin("ABC").build();
+        Broker broker = Broker.builder().brokerId(1).name("broker1").credit(1000).build();
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).name("shareholder1").build();
+        securityRepository.addSecurity(security);
+        brokerRepository.addBroker(broker);
+        shareholderRepository.addShareholder(shareholder);
+        security.getOrderBook().enqueue(new Order(1, security, Side.BUY, 10, 100, broker, shareholder));
+        RequestJournal journal = mock(RequestJournal.class);
+        when(journal.lastSequence()).thenReturn(17L);
+        Path file = directory.resolve("tinyme.snapshot");
+
+        SnapshotStore store = new BinarySnapshotStore(brokerRepository, shareholderRepository, securityRepository, file.toString());
+        new SnapshotScheduler(journal, new DirectRequestSequencer(), Optional.of(store), 60, 0).takeSnapshot();
+
+        verify(journal).checkpoint(17);
+        SecurityRepository securities = new SecurityRepository();
+        assertThat(BinarySnapshot.read(file, new BrokerRepository(), new ShareholderRepository(), securities)).isEqualTo(17);
+        assertThat(securities.findSecurityByIsin("ABC").getOrderBook().getBuyQueue()).hasSize(1);
+    }
+
+    @Test
+    void periodic_snapshots_need_a_snapshot_store() {
+        assertThatThrownBy(() -> new SnapshotScheduler(mock(RequestJournal.class), new DirectRequestSequencer(), Optional.empty(), 60, 0))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
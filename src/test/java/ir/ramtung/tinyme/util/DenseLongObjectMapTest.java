@@ -0,0 +1,57 @@
+package ir.ramtung.tinyme.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DenseLongObjectMapTest {
+    @Test
+    void keeps_compact_and_sparse_ids_side_by_side() {
+        DenseLongObjectMap<String> map = new DenseLongObjectMap<>();
+        map.put(0, "zero");
+        map.put(-7, "minus seven");
+        map.put(1_000_000_000_000L, "huge");
+        map.put(63, "sixty three");
+        assertThat(map.get(0)).isEqualTo("zero");
+        assertThat(map.get(-7)).isEqualTo("minus seven");
+        assertThat(map.get(1_000_000_000_000L)).isEqualTo("huge");
+        assertThat(map.get(63)).isEqualTo("sixty three");
+        assertThat(map.get(64)).isNull();
+        assertThat(map.size()).isEqualTo(4);
+        assertThat(map.values()).containsExactlyInAnyOrder("zero", "minus seven", "huge", "sixty three");
+    }
+
+    @Test
+    void ids_put_before_the_array_grew_stay_reachable() {
+        DenseLongObjectMap<Long> map = new DenseLongObjectMap<>();
+        map.put(200, 200L);
+        for (long id = 0; id < 200; id++)
+            map.put(id, id);
+        for (long id = 0; id <= 200; id++)
+            assertThat(map.get(id)).isEqualTo(id);
+        assertThat(map.size()).isEqualTo(201);
+        assertThat(map.values()).hasSize(201);
+    }
+
+    @Test
+    void behaves_like_a_hash_map_under_random_puts_and_removes() {
+        DenseLongObjectMap<Long> map = new DenseLongObjectMap<>();
+        HashMap<Long, Long> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextBoolean() ? random.nextInt(2_000) : random.nextLong();
+            if (random.nextInt(3) > 0) {
+                assertThat(map.put(key, (long) i)).isEqualTo(expected.put(key, (long) i));
+            } else {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            }
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key : expected.keySet())
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        assertThat(map.values()).containsExactlyInAnyOrderElementsOf(expected.values());
+    }
+}
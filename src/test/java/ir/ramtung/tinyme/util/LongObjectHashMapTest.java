@@ -0,0 +1,51 @@
+package ir.ramtung.tinyme.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongObjectHashMapTest {
+    @Test
+    void finds_what_was_put() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        map.put(0, "zero");
+        map.put(-7, "minus seven");
+        map.put(42, "forty two");
+        assertThat(map.get(0)).isEqualTo("zero");
+        assertThat(map.get(-7)).isEqualTo("minus seven");
+        assertThat(map.get(42)).isEqualTo("forty two");
+        assertThat(map.get(43)).isNull();
+        assertThat(map.size()).isEqualTo(3);
+    }
+
+    @Test
+    void put_replaces_existing_value() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        map.put(1, "one");
+        assertThat(map.put(1, "uno")).isEqualTo("one");
+        assertThat(map.get(1)).isEqualTo("uno");
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void behaves_like_a_hash_map_under_random_puts_and_removes() {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        HashMap<Long, Long> expected = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(2_000);
+            if (random.nextBoolean()) {
+                assertThat(map.put(key, (long) i)).isEqualTo(expected.put(key, (long) i));
+            } else {
+                assertThat(map.remove(key)).isEqualTo(expected.remove(key));
+            }
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        for (long key = 0; key < 2_000; key++)
+            assertThat(map.get(key)).isEqualTo(expected.get(key));
+        assertThat(map.values()).containsExactlyInAnyOrderElementsOf(expected.values());
+    }
+}